@@ -0,0 +1,175 @@
+package ex2;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A batch of shortest path queries, used by {@link Map#shortestPaths(PathQuery[])}.
+ * The queries are grouped by (source, obsColor, cyclic): every group runs one BFS from its source and
+ * reads all the paths of its queries off the shared parent array. The groups are independent, so they
+ * run in parallel on the common fork-join pool. The BFS arrays are allocated once per thread that runs a
+ * task, not once per task: a task takes a set from a shared pool of idle sets (or allocates one when all of
+ * them are in use) and returns it when done, and each BFS resets only the cells the previous one visited.
+ * <p>
+ * Everything that is not thread safe runs on the calling thread before the parallel part: the grouping and
+ * the end point checks of {@link Map#canConnect}, which use a component index only when it is up to date
+ * (a batch never rebuilds one; without an index, the BFS finds out that there is no path). Queries from a
+ * pixel to itself are answered there too, without a search. The tasks only read the map data
+ * and the (synchronized) passability masks, so the map must not change while the batch runs.
+ */
+class BatchPathSearch {
+    /** The searched map. */
+    private final Map map;
+    /** The paths found, in the order of the queries (null when there is no path). */
+    private final Pixel2D[][] paths;
+    /** The groups of queries that share a BFS. */
+    private final Group[] groups;
+    /** The number of groups expanded by one task. */
+    private final int grain;
+    /** The idle BFS array sets (queue, dist, parent), at most one per thread that ran a task. */
+    private final ConcurrentLinkedQueue<int[][]> scratch = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Groups the queries of a batch.
+     * @param map the map to search
+     * @param queries the queries
+     */
+    BatchPathSearch(Map map, PathQuery[] queries) {
+        this.map = map;
+        this.paths = new Pixel2D[queries.length][];
+        int width = map.getWidth();
+        HashMap<Long, Group> byKey = new HashMap<>();
+        for (int i = 0; i < queries.length; i++) {
+            PathQuery q = queries[i];
+            Pixel2D p1 = q.getP1();
+            Pixel2D p2 = q.getP2();
+            int obsColor = q.getObsColor();
+            if (!map.canConnect(p1, p2, obsColor, q.isCyclic())) {
+                continue;
+            }
+            int source = p1.getY() * width + p1.getX();
+            int target = p2.getY() * width + p2.getX();
+            if (source == target) {
+                paths[i] = new Pixel2D[]{new Index2D(p1)};
+                continue;
+            }
+            long key = ((long) obsColor << 32) | ((long) source << 1) | (q.isCyclic() ? 1 : 0);
+            byKey.computeIfAbsent(key, k -> new Group(source, obsColor, q.isCyclic())).add(i, target);
+        }
+        groups = byKey.values().toArray(new Group[0]);
+        grain = Math.max(1, groups.length / (4 * ForkJoinPool.getCommonPoolParallelism()));
+    }
+
+    /**
+     * Runs the searches of all the groups.
+     * @return the paths, in the order of the queries (null when there is no path)
+     */
+    Pixel2D[][] run() {
+        if (groups.length <= grain) {
+            search(0, groups.length);
+        }
+        else {
+            ForkJoinPool.commonPool().invoke(new Search(0, groups.length));
+        }
+        return paths;
+    }
+
+    /**
+     * Searches a range of groups with one set of BFS arrays (taken from the idle sets, or allocated).
+     * @param lo the first group
+     * @param hi the end (exclusive) of the range
+     */
+    private void search(int lo, int hi) {
+        int[][] arrays = scratch.poll();
+        if (arrays == null) {
+            int n = map.getWidth() * map.getHeight();
+            arrays = new int[][]{new int[n], map.newDistanceArray(), new int[n]};
+        }
+        int[] queue = arrays[0];
+        int[] dist = arrays[1];
+        int[] parent = arrays[2];
+        for (int g = lo; g < hi; g++) {
+            Group group = groups[g];
+            queue[0] = group.source;
+            dist[group.source] = 0;
+            parent[group.source] = -1;
+            // A single query can stop at its target; a shared tree must reach every target
+            int target = group.size == 1 ? group.targets[0] : -1;
+            int visited = map.bfs(queue, 1, dist, parent, target, group.obsColor, group.cyclic);
+            for (int i = 0; i < group.size; i++) {
+                int t = group.targets[i];
+                paths[group.queries[i]] = dist[t] < 0 ? null : map.pathTo(parent, t, dist[t]);
+            }
+            for (int i = 0; i < visited; i++) {
+                dist[queue[i]] = -1;
+            }
+        }
+        // Every visited cell was reset, so the set is clean for the next task
+        scratch.offer(arrays);
+    }
+
+    /**
+     * The queries that share a source, obsColor and cyclic flag.
+     */
+    private static class Group {
+        /** The packed index of the source. */
+        final int source;
+        /** The color value representing obstacles. */
+        final int obsColor;
+        /** If true, the map edges wrap around. */
+        final boolean cyclic;
+        /** The indices of the queries in the batch. */
+        int[] queries = new int[2];
+        /** The packed index of the target of every query. */
+        int[] targets = new int[2];
+        /** The number of queries. */
+        int size;
+
+        Group(int source, int obsColor, boolean cyclic) {
+            this.source = source;
+            this.obsColor = obsColor;
+            this.cyclic = cyclic;
+        }
+
+        void add(int query, int target) {
+            if (size == queries.length) {
+                queries = Arrays.copyOf(queries, size * 2);
+                targets = Arrays.copyOf(targets, size * 2);
+            }
+            queries[size] = query;
+            targets[size] = target;
+            size++;
+        }
+    }
+
+    /**
+     * A fork-join task searching a range of groups (split in halves down to grain groups).
+     */
+    private class Search extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        /** The first group of the range. */
+        private final int lo;
+        /** The end (exclusive) of the range. */
+        private final int hi;
+
+        Search(int lo, int hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= grain) {
+                search(lo, hi);
+            }
+            else {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Search(lo, mid), new Search(mid, hi));
+            }
+        }
+    }
+}
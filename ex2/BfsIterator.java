@@ -0,0 +1,180 @@
+package ex2;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A lazy BFS over a Map (see {@link Map#bfsIterator(Pixel2D, int, boolean)}): every call to next
+ * returns the next pixel in increasing order of distance from the start (the order of allDistance),
+ * expanding its neighbors only then. The caller can stop at any point - at the first pixel matching a
+ * predicate, after the K nearest pixels, or when a time budget runs out - without paying for the rest of the map.
+ * <p>
+ * Every value is a packed (x, y, dist) long: the distance in the high 32 bits and the packed index
+ * y*width + x in the low 32 bits; use {@link #getX(long)}, {@link #getY(long)} and {@link #getDistance(long)}
+ * to unpack it. The memory used is a visited bitset of the whole map (width*height/8 bytes, allocated up front)
+ * and a queue that grows with the BFS frontier (the returned cells are dropped from its front).
+ * The iterator is fail-fast: changing the map while iterating throws a ConcurrentModificationException.
+ */
+public class BfsIterator implements PrimitiveIterator.OfLong {
+    /** The map being traversed. */
+    private final Map map;
+    /** If true, the map edges wrap around. */
+    private final boolean cyclic;
+    /** The modification count of the map when the iterator was created. */
+    private final int version;
+    /** The passable cells of the map. */
+    private final long[] free;
+    /** The cells that were already queued. */
+    private final long[] visited;
+    /** The BFS queue: the queued cells that were not returned yet (and some that were, before head), in order. */
+    private int[] queue;
+    /** The number of returned cells that were dropped from the front of the queue. */
+    private int dropped;
+    /** The position of the next cell to return. */
+    private int head;
+    /** The number of queued cells. */
+    private int tail;
+    /** The queue position where the next distance level starts. */
+    private int levelEnd;
+    /** The distance of the cell at head. */
+    private int depth;
+
+    /**
+     * Constructs an iterator starting at the given pixel.
+     * @param map the map to traverse
+     * @param start the starting pixel (if it is outside the map or an obstacle, the iterator is empty)
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around)
+     */
+    BfsIterator(Map map, Pixel2D start, int obsColor, boolean cyclic) {
+        this.map = map;
+        this.cyclic = cyclic;
+        this.version = map.version();
+        this.free = map.passabilityMask(obsColor).words();
+        this.visited = new long[free.length];
+        this.queue = new int[16];
+        if (map.isInside(start)) {
+            int s = start.getY() * map.getWidth() + start.getX();
+            if ((free[s >>> 6] & (1L << s)) != 0) {
+                visited[s >>> 6] |= 1L << s;
+                queue[tail++] = s;
+                levelEnd = tail;
+            }
+        }
+    }
+
+    /**
+     * @return true if there are more reachable pixels
+     */
+    @Override
+    public boolean hasNext() {
+        return head < tail;
+    }
+
+    /**
+     * Returns the next pixel in BFS order and queues its unvisited neighbors.
+     * @return the packed (x, y, dist) value of the pixel
+     * @throws NoSuchElementException if every reachable pixel was returned
+     * @throws ConcurrentModificationException if the map changed since the iterator was created
+     */
+    @Override
+    public long nextLong() {
+        if (map.version() != version) {
+            throw new ConcurrentModificationException("the map changed during the traversal");
+        }
+        if (head == tail) {
+            throw new NoSuchElementException();
+        }
+        if (head == levelEnd) {
+            depth++;
+            levelEnd = tail;
+        }
+        int current = queue[head++];
+        int width = map.getWidth();
+        int x = current % width;
+        int y = current / width;
+        for (int dir = Map.UP; dir <= Map.LEFT; dir++) {
+            int next = map.step(x, y, dir, cyclic);
+            if (next < 0 || (free[next >>> 6] & (1L << next)) == 0 || (visited[next >>> 6] & (1L << next)) != 0) {
+                continue;
+            }
+            visited[next >>> 6] |= 1L << next;
+            if (tail == queue.length) {
+                grow();
+            }
+            queue[tail++] = next;
+        }
+        return ((long) depth << 32) | current;
+    }
+
+    /**
+     * @return the number of pixels returned so far
+     */
+    public int visitedCount() {
+        return dropped + head;
+    }
+
+    /**
+     * Makes room in the full queue: drops the returned cells from its front if they are at least half of it,
+     * otherwise doubles it. Either way the copy is paid for by the cells queued since the last one.
+     */
+    private void grow() {
+        if (head >= queue.length / 2) {
+            System.arraycopy(queue, head, queue, 0, tail - head);
+            dropped += head;
+            tail -= head;
+            levelEnd -= head;
+            head = 0;
+        }
+        else {
+            queue = Arrays.copyOf(queue, queue.length * 2);
+        }
+    }
+
+    /**
+     * @param packed a value returned by the iterator
+     * @return the x coordinate of the pixel
+     */
+    public int getX(long packed) {
+        return (int) packed % map.getWidth();
+    }
+
+    /**
+     * @param packed a value returned by the iterator
+     * @return the y coordinate of the pixel
+     */
+    public int getY(long packed) {
+        return (int) packed / map.getWidth();
+    }
+
+    /**
+     * @param packed a value returned by the iterator
+     * @return the pixel
+     */
+    public Pixel2D getPixel(long packed) {
+        return new Index2D(getX(packed), getY(packed));
+    }
+
+    /**
+     * @param packed a value returned by the iterator
+     * @return the distance of the pixel from the start
+     */
+    public static int getDistance(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    /**
+     * @return a sequential stream of the remaining packed values, in BFS order (consumed lazily from this iterator)
+     */
+    public LongStream stream() {
+        Spliterator.OfLong spliterator = Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+        return StreamSupport.longStream(spliterator, false);
+    }
+}
@@ -0,0 +1,170 @@
+package ex2;
+
+/**
+ * A bit-parallel BFS over a Map, used by {@link Map#allDistanceBitParallel(Pixel2D, int, boolean)}.
+ * The cells are bits of a row-major bitset (bit y*width + x), so a step of the whole frontier in one direction
+ * is a shift of the bitset: right is +1, left is -1, up is +width and down is -width. The horizontal shifts are
+ * masked by the first and last columns, so that no bit moves between rows, and in cyclic mode the masked bits
+ * wrap to the other edge of their row (a shift by width-1); the vertical wrap moves the last row to the first
+ * and vice versa (a shift by width*height - width), i.e. a rotation of the whole bitset.
+ * Every level dilates the frontier by the four shifts and ANDs the result with the passable and unvisited cells,
+ * handling 64 cells per word operation.
+ * <p>
+ * Only the words that hold frontier bits are shifted, so a level costs O(frontier words) rather than O(map words).
+ * The gain depends on how many frontier cells share a word: a front running along the rows (a wave
+ * coming out of a long horizontal opening) moves 64 cells per word, while the diamond wave around a single
+ * start pixel has only a cell or two per word, where the plain BFS is about twice as fast.
+ */
+class BitParallelBfs {
+    /** If true, the map edges wrap around. */
+    private final boolean cyclic;
+    /** The width of the map. */
+    private final int width;
+    /** The number of cells of the map. */
+    private final int n;
+    /** The number of words of every bitset. */
+    private final int words;
+
+    /** The passable cells (the words of the map's passability mask). */
+    private final long[] free;
+    /** The first column, and the last column. */
+    private final long[] firstColumn, lastColumn;
+    /** The visited cells. */
+    private final long[] visited;
+    /** The current level, and the next level under construction. */
+    private long[] frontier, next;
+    /** The indices of the (possibly) non-zero words of frontier, and of next. */
+    private int[] frontierWords, nextWords;
+    /** The number of entries in frontierWords, and in nextWords. */
+    private int frontierCount, nextCount;
+    /** The level a word was last added to nextWords in (to add it once). */
+    private final int[] listed;
+    /** The current level. */
+    private int level;
+
+    /**
+     * Constructs a bit-parallel BFS.
+     * @param map the map to traverse
+     * @param obsColor the color value representing obstacles
+     * @param cyclic if true, the map edges wrap around
+     */
+    BitParallelBfs(Map map, int obsColor, boolean cyclic) {
+        this.cyclic = cyclic;
+        this.width = map.getWidth();
+        this.n = width * map.getHeight();
+        this.words = (n + 63) >>> 6;
+        free = map.passabilityMask(obsColor).words();
+        firstColumn = new long[words];
+        lastColumn = new long[words];
+        for (int row = 0; row < n; row += width) {
+            firstColumn[row >>> 6] |= 1L << row;
+            lastColumn[(row + width - 1) >>> 6] |= 1L << (row + width - 1);
+        }
+        visited = new long[words];
+        frontier = new long[words];
+        next = new long[words];
+        frontierWords = new int[words];
+        nextWords = new int[words];
+        listed = new int[words];
+    }
+
+    /**
+     * Computes the distances of all the cells reachable from start.
+     * @param start the packed index of a passable start cell
+     * @param dist per-cell distance, all -1 on entry
+     */
+    void run(int start, int[] dist) {
+        dist[start] = 0;
+        visited[start >>> 6] |= 1L << start;
+        frontier[start >>> 6] = 1L << start;
+        frontierWords[0] = start >>> 6;
+        frontierCount = 1;
+        while (frontierCount > 0) {
+            level++;
+            nextCount = 0;
+            // Dilate the frontier: every step is a shift of the (masked) frontier bits
+            for (int k = 0; k < frontierCount; k++) {
+                int i = frontierWords[k];
+                long v = frontier[i];
+                shift(i, v, width, true);
+                shift(i, v, width, false);
+                shift(i, v & ~lastColumn[i], 1, true);
+                shift(i, v & ~firstColumn[i], 1, false);
+                if (cyclic) {
+                    shift(i, v, n - width, false);
+                    shift(i, v, n - width, true);
+                    shift(i, v & lastColumn[i], width - 1, false);
+                    shift(i, v & firstColumn[i], width - 1, true);
+                }
+            }
+            // Keep the passable unvisited cells, and give them their distance
+            int count = 0;
+            for (int k = 0; k < nextCount; k++) {
+                int w = nextWords[k];
+                long bits = next[w] & free[w] & ~visited[w];
+                next[w] = bits;
+                if (bits != 0) {
+                    visited[w] |= bits;
+                    nextWords[count++] = w;
+                    int base = w << 6;
+                    while (bits != 0) {
+                        dist[base + Long.numberOfTrailingZeros(bits)] = level;
+                        bits &= bits - 1;
+                    }
+                }
+            }
+            // The old frontier becomes the buffer of the next level
+            for (int k = 0; k < frontierCount; k++) {
+                frontier[frontierWords[k]] = 0;
+            }
+            long[] swap = frontier;
+            frontier = next;
+            next = swap;
+            int[] swapWords = frontierWords;
+            frontierWords = nextWords;
+            nextWords = swapWords;
+            frontierCount = count;
+        }
+    }
+
+    /**
+     * ORs a word of the frontier, shifted by s bits, into next (dropping the bits shifted out of the bitset).
+     * @param i the index of the word
+     * @param v the (masked) frontier bits of the word
+     * @param s the shift distance in bits
+     * @param up if true, bits move to higher indices, otherwise to lower ones
+     */
+    private void shift(int i, long v, int s, boolean up) {
+        if (v == 0) {
+            return;
+        }
+        int ws = s >>> 6;
+        int bs = s & 63;
+        if (up) {
+            or(i + ws, v << bs);
+            if (bs != 0) {
+                or(i + ws + 1, v >>> (64 - bs));
+            }
+        }
+        else {
+            or(i - ws, v >>> bs);
+            if (bs != 0) {
+                or(i - ws - 1, v << (64 - bs));
+            }
+        }
+    }
+
+    /**
+     * ORs bits into a word of next and lists the word (words outside the bitset are dropped).
+     */
+    private void or(int w, long bits) {
+        if (w < 0 || w >= words || bits == 0) {
+            return;
+        }
+        next[w] |= bits;
+        if (listed[w] != level) {
+            listed[w] = level;
+            nextWords[nextCount++] = w;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ex2;
+
+import java.util.Arrays;
+
+/**
+ * A monotone bucket queue (Dial's queue) of int values with small non-negative int priorities.
+ * Every added priority must lie in [p, p + span], where p is the priority of the last polled value
+ * (as in Dijkstra's algorithm with edge costs of at most span), so span + 1 circular buckets suffice.
+ * Adding and polling are O(1) amortized - the polling cursor only moves forward over the buckets.
+ * Like IntPriorityQueue there is no decrease-key operation: a value is added again with its better
+ * priority and the stale entry is skipped by the caller when it is polled.
+ */
+class BucketQueue {
+    /** The circular buckets, bucket i holds the values of the priorities equal to i modulo the number of buckets. */
+    private final int[][] buckets;
+    /** The number of values in each bucket. */
+    private final int[] sizes;
+    /** The number of values in the queue. */
+    private int size;
+    /** The priority of the bucket the polling cursor is at. */
+    private int current;
+
+    /**
+     * Constructs an empty queue.
+     * @param span the largest difference between an added priority and the last polled one
+     */
+    BucketQueue(int span) {
+        buckets = new int[span + 1][];
+        sizes = new int[span + 1];
+        for (int i = 0; i <= span; i++) {
+            buckets[i] = new int[16];
+        }
+    }
+
+    /**
+     * @return true if the queue has no entries
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the number of entries in the queue
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds a value with the given priority.
+     * @param value the value to add
+     * @param priority the priority of the value (lower is polled first)
+     */
+    void add(int value, int priority) {
+        int b = priority % buckets.length;
+        if (sizes[b] == buckets[b].length) {
+            buckets[b] = Arrays.copyOf(buckets[b], sizes[b] * 2);
+        }
+        buckets[b][sizes[b]++] = value;
+        size++;
+    }
+
+    /**
+     * Removes and returns a value with the lowest priority (the queue must not be empty).
+     * @return a value with the lowest priority
+     */
+    int poll() {
+        int b = current % buckets.length;
+        while (sizes[b] == 0) {
+            current++;
+            b = current % buckets.length;
+        }
+        size--;
+        return buckets[b][--sizes[b]];
+    }
+
+    /**
+     * @return the priority of the value returned by the last poll
+     */
+    int lastPriority() {
+        return current;
+    }
+}
@@ -0,0 +1,135 @@
+package ex2;
+
+/**
+ * A connected-component labeling of a Map for one (obsColor, cyclic) pair.
+ * Every passable cell (a cell whose value is not obsColor) gets the id of its 4-connected component,
+ * so "is there any path between a and b" is answered in O(1) by comparing two labels.
+ * The labeling is computed with union-find in two passes over the cells:
+ * https://en.wikipedia.org/wiki/Connected-component_labeling
+ * An index is a snapshot - it remembers the modification count of the map it was built for,
+ * and the map rebuilds it once the map changes.
+ */
+class ComponentIndex {
+    /** The component id of every cell, -1 for obstacle cells. */
+    private final int[] labels;
+    /** The number of components. */
+    private final int count;
+    /** The modification count of the map when this index was built. */
+    private final int version;
+
+    /**
+     * Builds the component labeling of the given map.
+     * @param map the map to label
+     * @param obsColor the color value representing obstacles
+     * @param cyclic if true, the map edges wrap around
+     * @param version the modification count of the map
+     */
+    ComponentIndex(Map map, int obsColor, boolean cyclic, int version) {
+        this.version = version;
+        int width = map.getWidth();
+        int height = map.getHeight();
+        int n = width * height;
+        PassabilityMask mask = map.passabilityMask(obsColor);
+        // First pass: union every passable cell with its passable left and down neighbors
+        // (plus the wrap-around neighbors of the first column and row in cyclic mode)
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int cell = y * width + x;
+                if (!mask.passable(cell)) {
+                    continue;
+                }
+                if (x > 0 || (cyclic && width > 1)) {
+                    union(parent, cell, map.step(x, y, Map.LEFT, cyclic), mask);
+                }
+                if (y > 0 || (cyclic && height > 1)) {
+                    union(parent, cell, map.step(x, y, Map.DOWN, cyclic), mask);
+                }
+            }
+        }
+        // Second pass: turn every root into a compact component id
+        labels = new int[n];
+        int next = 0;
+        for (int i = 0; i < n; i++) {
+            if (!mask.passable(i)) {
+                labels[i] = -1;
+            }
+            else {
+                int root = find(parent, i);
+                // Roots are always the smallest index of their set, so they get their label first
+                labels[i] = (root == i) ? next++ : labels[root];
+            }
+        }
+        count = next;
+    }
+
+    /**
+     * @param a a packed cell index
+     * @param b a packed cell index
+     * @return true if both cells are passable and belong to the same component
+     */
+    boolean connected(int a, int b) {
+        return labels[a] >= 0 && labels[a] == labels[b];
+    }
+
+    /**
+     * @param cell a packed cell index
+     * @return the component id of the cell, or -1 for an obstacle
+     */
+    int label(int cell) {
+        return labels[cell];
+    }
+
+    /**
+     * @return the number of components
+     */
+    int count() {
+        return count;
+    }
+
+    /**
+     * @return the modification count of the map when this index was built
+     */
+    int version() {
+        return version;
+    }
+
+    /**
+     * Finds the root of a cell (with path halving).
+     * @param parent the union-find parent array
+     * @param i the cell
+     * @return the root of the set of the cell
+     */
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Joins the sets of a passable cell and a neighbor (if the neighbor is passable).
+     * The smaller root becomes the root of the joined set.
+     * @param parent the union-find parent array
+     * @param cell a passable cell
+     * @param neighbor a neighbor of the cell (may be -1)
+     * @param mask the passable cells of the map
+     */
+    private static void union(int[] parent, int cell, int neighbor, PassabilityMask mask) {
+        if (neighbor < 0 || !mask.passable(neighbor)) {
+            return;
+        }
+        int a = find(parent, cell);
+        int b = find(parent, neighbor);
+        if (a < b) {
+            parent[b] = a;
+        }
+        else if (b < a) {
+            parent[a] = b;
+        }
+    }
+}
@@ -0,0 +1,555 @@
+package ex2;
+
+import java.util.Arrays;
+
+/**
+ * A contraction of the corridors of a Map: every chain of passable pixels with exactly two passable neighbors
+ * (a one pixel wide corridor) becomes a single weighted edge between the junctions at its ends, so a search
+ * runs on the junctions only (Dijkstra) and the chains are expanded back to pixels for the result.
+ * The mazes of Ex2_GUI are almost all corridors, so the junction graph is many times smaller than the map.
+ * <p>
+ * The junctions are the passable pixels whose number of (distinct) passable neighbors is not 2; a corridor that
+ * closes on itself without any junction (a pure loop) gets one of its pixels as a forced junction. The edges are
+ * not stored: the edges of a junction are found from its neighbors, since a neighbor is either a junction
+ * (an edge of weight 1) or the first pixel of a chain (an edge to the other end, of the chain length + 1).
+ * <p>
+ * The graph listens to the map and is repaired locally, like {@link DynamicDistanceField}: the chains within two
+ * steps of a pixel whose passability changed are dissolved, and their pixels are traced into chains again at the
+ * next query. The searches share scratch arrays, so a graph must not be used by several threads at once.
+ */
+public class CorridorGraph implements MapListener {
+    /** The map being contracted. */
+    private final Map map;
+    /** The color value representing obstacles. */
+    private final int obsColor;
+    /** If true, the map edges wrap around. */
+    private final boolean cyclic;
+
+    /** The width of the map. */
+    private int width;
+    /** The passability of every cell the graph was built for. */
+    private long[] free;
+    /** The pure loop pixels that were made junctions. */
+    private boolean[] forced;
+    /** The chain of every corridor cell (-1 for junctions and obstacles). */
+    private int[] chainId;
+    /** The position of every corridor cell in its chain (1 to the number of cells of the chain). */
+    private int[] chainPos;
+    /** The cells of every chain, from the end A side to the end B side (null for a free chain id). */
+    private int[][] chainCells;
+    /** The junction at the first end of every chain. */
+    private int[] endA;
+    /** The junction at the last end of every chain. */
+    private int[] endB;
+    /** The number of chain ids in use (including free ones). */
+    private int chainCount;
+    /** The free chain ids. */
+    private int[] freeIds;
+    /** The number of free chain ids. */
+    private int freeCount;
+    /** The cells whose passability changed since the last repair (a cell may appear more than once). */
+    private int[] pending;
+    /** The number of entries in pending. */
+    private int pendingCount;
+
+    /** Search scratch: the distance of every junction (-1 if not reached). */
+    private int[] dist;
+    /** Search scratch: the junction every junction was reached from. */
+    private int[] parent;
+    /** Search scratch: the neighbor of the parent every junction was reached through. */
+    private int[] via;
+    /** Search scratch: the junctions whose distance was set. */
+    private int[] touched;
+
+    /**
+     * Contracts the corridors of a map and starts tracking its changes.
+     * @param map the map
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around)
+     */
+    public CorridorGraph(Map map, int obsColor, boolean cyclic) {
+        this.map = map;
+        this.obsColor = obsColor;
+        this.cyclic = cyclic;
+        build();
+        map.addListener(this);
+    }
+
+    /**
+     * Stops tracking the changes of the map (the graph must not be used afterwards).
+     */
+    public void detach() {
+        map.removeListener(this);
+    }
+
+    /**
+     * @return the number of junctions (the nodes searched by shortestPath)
+     */
+    public int junctionCount() {
+        repair();
+        int count = 0;
+        for (int cell = 0; cell < chainId.length; cell++) {
+            if (isJunction(cell)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Finds a shortest path between two pixels with Dijkstra's algorithm on the junctions,
+     * and expands the chains of the result back to pixels.
+     * @param p1 the starting pixel
+     * @param p2 the destination pixel
+     * @return an array of consecutive pixels from p1 to p2 (as long as shortestPath), or null if no path exists
+     */
+    public Pixel2D[] shortestPath(Pixel2D p1, Pixel2D p2) {
+        repair();
+        // Only an up to date component index is used: rebuilding one costs a pass over the whole map
+        if (!map.canConnect(p1, p2, obsColor, cyclic)) {
+            return null;
+        }
+        int source = p1.getY() * width + p1.getX();
+        int target = p2.getY() * width + p2.getX();
+        if (source == target) {
+            return new Pixel2D[]{new Index2D(p1)};
+        }
+        int sc = chainId[source];
+        int tc = chainId[target];
+        // The best complete path: directly along a shared chain, or through a junction at the target side
+        int best = Integer.MAX_VALUE;
+        int bestEnd = -1;
+        if (sc >= 0 && sc == tc) {
+            best = Math.abs(chainPos[source] - chainPos[target]);
+        }
+        IntPriorityQueue queue = new IntPriorityQueue(64);
+        int touchedCount = 0;
+        if (sc < 0) {
+            touchedCount = relax(queue, touchedCount, source, 0, -1, -1);
+        }
+        else {
+            touchedCount = relax(queue, touchedCount, endA[sc], chainPos[source], -1, -1);
+            touchedCount = relax(queue, touchedCount, endB[sc], chainCells[sc].length + 1 - chainPos[source], -1, -1);
+        }
+        while (!queue.isEmpty()) {
+            int d = (int) queue.peekPriority();
+            int u = queue.poll();
+            if (d != dist[u]) {
+                continue;
+            }
+            if (d >= best) {
+                break;
+            }
+            int toTarget = tc < 0 ? (u == target ? 0 : -1) : offsetToTarget(u, tc, chainPos[target]);
+            if (toTarget >= 0 && d + toTarget < best) {
+                best = d + toTarget;
+                bestEnd = u;
+            }
+            int x = u % width;
+            int y = u / width;
+            for (int dir = Map.UP; dir <= Map.LEFT; dir++) {
+                int nb = map.step(x, y, dir, cyclic);
+                if (nb < 0 || nb == u || !isFree(nb)) {
+                    continue;
+                }
+                int c = chainId[nb];
+                int v = c < 0 ? nb : endA[c] == u ? endB[c] : endA[c];
+                if (c >= 0 && endA[c] == endB[c]) {
+                    continue;
+                }
+                // A dead end leads nowhere, unless the target is there
+                if (v != target && (tc < 0 || (endA[tc] != v && endB[tc] != v)) && degree(v) == 1) {
+                    continue;
+                }
+                touchedCount = relax(queue, touchedCount, v, d + (c < 0 ? 1 : chainCells[c].length + 1), u, nb);
+            }
+        }
+        // Without a component index, an unreachable target is found out here: the search never reached it
+        Pixel2D[] path = best == Integer.MAX_VALUE ? null : expand(source, target, best, bestEnd);
+        for (int i = 0; i < touchedCount; i++) {
+            dist[touched[i]] = -1;
+        }
+        return path;
+    }
+
+    /**
+     * Queues the changed cells whose passability changed.
+     */
+    @Override
+    public void regionChanged(Map map, int minX, int minY, int maxX, int maxY) {
+        PassabilityMask mask = map.passabilityMask(obsColor);
+        for (int y = minY; y <= maxY; y++) {
+            for (int cell = y * width + minX; cell <= y * width + maxX; cell++) {
+                if (mask.passable(cell) != isFree(cell)) {
+                    free[cell >>> 6] ^= 1L << cell;
+                    if (pendingCount == pending.length) {
+                        pending = Arrays.copyOf(pending, pendingCount * 2);
+                    }
+                    pending[pendingCount++] = cell;
+                }
+            }
+        }
+    }
+
+    /**
+     * Contracts the map again (the dimensions of the map may have changed).
+     */
+    @Override
+    public void mapReset(Map map) {
+        build();
+    }
+
+    /**
+     * Contracts all the corridors from scratch.
+     */
+    private void build() {
+        width = map.getWidth();
+        int n = width * map.getHeight();
+        free = map.passabilityMask(obsColor).words().clone();
+        forced = new boolean[n];
+        chainId = new int[n];
+        chainPos = new int[n];
+        Arrays.fill(chainId, -1);
+        chainCells = new int[16][];
+        endA = new int[16];
+        endB = new int[16];
+        chainCount = 0;
+        freeIds = new int[16];
+        freeCount = 0;
+        pending = new int[16];
+        pendingCount = 0;
+        dist = new int[n];
+        Arrays.fill(dist, -1);
+        parent = new int[n];
+        via = new int[n];
+        touched = new int[16];
+        for (int cell = 0; cell < n; cell++) {
+            if (isFree(cell) && chainId[cell] < 0 && !isJunction(cell)) {
+                trace(cell);
+            }
+        }
+    }
+
+    /**
+     * Repairs the chains around the queued passability changes.
+     */
+    private void repair() {
+        if (pendingCount == 0) {
+            return;
+        }
+        if (pendingCount > chainId.length / 8) {
+            build();
+            return;
+        }
+        // The degree changes only at a changed cell and its neighbors; dissolving every chain within
+        // two steps also dissolves the chains that end at those cells
+        int[] region = new int[16];
+        int regionCount = 0;
+        for (int i = 0; i < pendingCount; i++) {
+            int cell = pending[i];
+            if (regionCount + 25 > region.length) {
+                region = Arrays.copyOf(region, region.length * 2 + 25);
+            }
+            region[regionCount++] = cell;
+            for (int dir = Map.UP; dir <= Map.LEFT; dir++) {
+                int next = map.step(cell, dir, cyclic);
+                if (next < 0) {
+                    continue;
+                }
+                region[regionCount++] = next;
+                for (int dir2 = Map.UP; dir2 <= Map.LEFT; dir2++) {
+                    int next2 = map.step(next, dir2, cyclic);
+                    if (next2 >= 0) {
+                        region[regionCount++] = next2;
+                    }
+                }
+            }
+        }
+        pendingCount = 0;
+        int[] loose = Arrays.copyOf(region, regionCount);
+        int looseCount = regionCount;
+        for (int i = 0; i < regionCount; i++) {
+            int c = chainId[region[i]];
+            if (c < 0) {
+                continue;
+            }
+            int[] cells = chainCells[c];
+            if (looseCount + cells.length + 1 > loose.length) {
+                loose = Arrays.copyOf(loose, Math.max(loose.length * 2, looseCount + cells.length + 1));
+            }
+            for (int cell : cells) {
+                loose[looseCount++] = cell;
+            }
+            // The released junction of a pure loop is a corridor cell again
+            loose[looseCount++] = endA[c];
+            removeChain(c);
+        }
+        for (int i = 0; i < looseCount; i++) {
+            int cell = loose[i];
+            if (isFree(cell) && chainId[cell] < 0 && !isJunction(cell)) {
+                trace(cell);
+            }
+        }
+    }
+
+    /**
+     * Builds the chain of a corridor cell that has none: follows the corridor both ways up to the junctions.
+     * A corridor that comes back to the cell without a junction is a pure loop, and the cell becomes its junction.
+     * @param start a free corridor cell without a chain
+     */
+    private void trace(int start) {
+        int firstNeighbor = otherNeighbor(start, -1);
+        int secondNeighbor = otherNeighbor(start, firstNeighbor);
+        int[] forward = new int[16];
+        int forwardCount = 0;
+        int prev = start;
+        int cur = firstNeighbor;
+        while (cur != start && !isJunction(cur)) {
+            if (forwardCount == forward.length) {
+                forward = Arrays.copyOf(forward, forwardCount * 2);
+            }
+            forward[forwardCount++] = cur;
+            int next = otherNeighbor(cur, prev);
+            prev = cur;
+            cur = next;
+        }
+        if (cur == start) {
+            forced[start] = true;
+            addChain(Arrays.copyOf(forward, forwardCount), start, start);
+            return;
+        }
+        int b = cur;
+        int[] backward = new int[16];
+        int backwardCount = 0;
+        prev = start;
+        cur = secondNeighbor;
+        while (!isJunction(cur)) {
+            if (backwardCount == backward.length) {
+                backward = Arrays.copyOf(backward, backwardCount * 2);
+            }
+            backward[backwardCount++] = cur;
+            int next = otherNeighbor(cur, prev);
+            prev = cur;
+            cur = next;
+        }
+        int[] cells = new int[backwardCount + 1 + forwardCount];
+        for (int i = 0; i < backwardCount; i++) {
+            cells[i] = backward[backwardCount - 1 - i];
+        }
+        cells[backwardCount] = start;
+        System.arraycopy(forward, 0, cells, backwardCount + 1, forwardCount);
+        addChain(cells, cur, b);
+    }
+
+    /**
+     * Registers a chain and labels its cells.
+     */
+    private void addChain(int[] cells, int a, int b) {
+        int c;
+        if (freeCount > 0) {
+            c = freeIds[--freeCount];
+        }
+        else {
+            if (chainCount == chainCells.length) {
+                chainCells = Arrays.copyOf(chainCells, chainCount * 2);
+                endA = Arrays.copyOf(endA, chainCount * 2);
+                endB = Arrays.copyOf(endB, chainCount * 2);
+            }
+            c = chainCount++;
+        }
+        chainCells[c] = cells;
+        endA[c] = a;
+        endB[c] = b;
+        for (int i = 0; i < cells.length; i++) {
+            chainId[cells[i]] = c;
+            chainPos[cells[i]] = i + 1;
+        }
+    }
+
+    /**
+     * Dissolves a chain: its cells lose their chain and a forced junction of a pure loop is released.
+     */
+    private void removeChain(int c) {
+        for (int cell : chainCells[c]) {
+            chainId[cell] = -1;
+        }
+        if (endA[c] == endB[c]) {
+            forced[endA[c]] = false;
+        }
+        chainCells[c] = null;
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        }
+        freeIds[freeCount++] = c;
+    }
+
+    /**
+     * Lowers the distance of a junction and queues it.
+     * @return the new number of touched junctions
+     */
+    private int relax(IntPriorityQueue queue, int touchedCount, int junction, int d, int from, int through) {
+        if (dist[junction] != -1 && dist[junction] <= d) {
+            return touchedCount;
+        }
+        if (dist[junction] == -1) {
+            if (touchedCount == touched.length) {
+                touched = Arrays.copyOf(touched, touchedCount * 2);
+            }
+            touched[touchedCount++] = junction;
+        }
+        dist[junction] = d;
+        parent[junction] = from;
+        via[junction] = through;
+        queue.add(junction, d);
+        return touchedCount;
+    }
+
+    /**
+     * @return the distance from a junction to the target cell at position pos of chain c, or -1 if the junction is not an end of c
+     */
+    private int offsetToTarget(int junction, int c, int pos) {
+        int toA = endA[c] == junction ? pos : -1;
+        int toB = endB[c] == junction ? chainCells[c].length + 1 - pos : -1;
+        if (toA < 0) {
+            return toB;
+        }
+        return toB < 0 ? toA : Math.min(toA, toB);
+    }
+
+    /**
+     * Expands the result of a search to pixels.
+     * @param source the source cell
+     * @param target the target cell
+     * @param length the length of the best path
+     * @param end the junction the best path reaches the target from, or -1 for the direct path along a chain
+     * @return the path from source to target
+     */
+    private Pixel2D[] expand(int source, int target, int length, int end) {
+        int[] cells = new int[length + 1];
+        int count = 0;
+        if (end < 0) {
+            cells[count++] = source;
+            count = appendChain(cells, count, chainId[source], chainPos[source], chainPos[target]);
+        }
+        else {
+            // The junctions from the source side to end, collected backwards
+            int hops = 0;
+            for (int u = end; u != -1; u = parent[u]) {
+                hops++;
+            }
+            int[] junctions = new int[hops];
+            int u = end;
+            for (int i = hops - 1; i >= 0; i--) {
+                junctions[i] = u;
+                u = parent[u];
+            }
+            cells[count++] = source;
+            int sc = chainId[source];
+            if (sc >= 0) {
+                int first = junctions[0];
+                count = appendChain(cells, count, sc, chainPos[source], endSide(sc, first, chainPos[source], dist[first]));
+            }
+            for (int i = 1; i < hops; i++) {
+                int v = junctions[i];
+                int nb = via[v];
+                int c = chainId[nb];
+                if (c >= 0) {
+                    int from = endA[c] == junctions[i - 1] ? 0 : chainCells[c].length + 1;
+                    count = appendChain(cells, count, c, from, chainCells[c].length + 1 - from);
+                }
+                else {
+                    cells[count++] = v;
+                }
+            }
+            int tc = chainId[target];
+            if (tc >= 0) {
+                int pos = chainPos[target];
+                int side = endSide(tc, end, pos, length - dist[end]);
+                count = appendChain(cells, count, tc, side, pos);
+            }
+        }
+        Pixel2D[] path = new Pixel2D[count];
+        for (int i = 0; i < count; i++) {
+            path[i] = new Index2D(cells[i] % width, cells[i] / width);
+        }
+        return path;
+    }
+
+    /**
+     * @return the position (0 for end A, length+1 for end B) of the end of chain c that is the given junction,
+     *         at the given distance from the cell at position pos
+     */
+    private int endSide(int c, int junction, int pos, int distance) {
+        if (endA[c] == junction && endB[c] == junction) {
+            return pos == distance ? 0 : chainCells[c].length + 1;
+        }
+        return endA[c] == junction ? 0 : chainCells[c].length + 1;
+    }
+
+    /**
+     * Appends the cells of a chain between two positions (exclusive of from, inclusive of to), in order.
+     * Position 0 is end A and position length+1 is end B.
+     * @return the new number of cells
+     */
+    private int appendChain(int[] cells, int count, int c, int from, int to) {
+        int[] chain = chainCells[c];
+        int step = to > from ? 1 : -1;
+        for (int pos = from + step; pos != to + step; pos += step) {
+            cells[count++] = pos == 0 ? endA[c] : pos == chain.length + 1 ? endB[c] : chain[pos - 1];
+        }
+        return count;
+    }
+
+    /**
+     * @return true if the cell is a free cell that is not part of a corridor
+     */
+    private boolean isJunction(int cell) {
+        return isFree(cell) && (forced[cell] || degree(cell) != 2);
+    }
+
+    /**
+     * Counts the distinct free neighbors of a cell (the cell itself excluded). On a cyclic map one or two pixels
+     * wide, two directions can lead to the same neighbor, which is counted once.
+     * @param cell the cell
+     * @return the number of distinct free neighbors
+     */
+    private int degree(int cell) {
+        int count = 0;
+        for (int dir = Map.UP; dir <= Map.LEFT; dir++) {
+            int next = map.step(cell, dir, cyclic);
+            if (next < 0 || next == cell || !isFree(next)) {
+                continue;
+            }
+            boolean seen = false;
+            for (int d = Map.UP; d < dir && !seen; d++) {
+                seen = map.step(cell, d, cyclic) == next;
+            }
+            if (!seen) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param cell a corridor cell
+     * @param prev the neighbor to skip (or -1 for none)
+     * @return the first free neighbor of the cell that is not prev (the other end of the corridor step), or -1
+     */
+    private int otherNeighbor(int cell, int prev) {
+        for (int dir = Map.UP; dir <= Map.LEFT; dir++) {
+            int next = map.step(cell, dir, cyclic);
+            if (next >= 0 && next != cell && next != prev && isFree(next)) {
+                return next;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return true if the cell was passable when the graph was last updated
+     */
+    private boolean isFree(int cell) {
+        return (free[cell >>> 6] & (1L << cell)) != 0;
+    }
+}
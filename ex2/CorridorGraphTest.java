@@ -0,0 +1,147 @@
+package ex2;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.Random;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for the CorridorGraph class.
+ * The paths must be valid and as long as the BFS paths, also after the map changes.
+ */
+class CorridorGraphTest {
+
+    /**
+     * Test that a maze contracts to a few junctions and that the paths match shortestPath
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testMaze() {
+        Random rand = new Random(31);
+        Map map = MapTest.maze(rand, 101, 101);
+        CorridorGraph graph = new CorridorGraph(map, -1, false);
+        int passable = 0;
+        for (int x = 0; x < 101; x++) {
+            for (int y = 0; y < 101; y++) {
+                if (map.getPixel(x, y) != -1) {
+                    passable++;
+                }
+            }
+        }
+        assertTrue(graph.junctionCount() * 5 < passable);
+        for (int i = 0; i < 50; i++) {
+            checkPath(map, graph, randomFree(rand, map), randomFree(rand, map), false);
+        }
+    }
+
+    /**
+     * Test mazes with extra openings (loops) and random obstacle maps, in both modes
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testRandomMaps() {
+        Random rand = new Random(32);
+        for (int i = 0; i < 40; i++) {
+            int w = 1 + rand.nextInt(30);
+            int h = 1 + rand.nextInt(30);
+            boolean cyclic = rand.nextBoolean();
+            Map map = rand.nextBoolean() ? MapTest.maze(rand, w, h) : new Map(w, h, 0);
+            for (int j = 0; j < w * h / 10; j++) {
+                map.setPixel(rand.nextInt(w), rand.nextInt(h), rand.nextInt(3) == 0 ? -1 : 0);
+            }
+            CorridorGraph graph = new CorridorGraph(map, -1, cyclic);
+            for (int j = 0; j < 20; j++) {
+                checkPath(map, graph, new Index2D(rand.nextInt(w), rand.nextInt(h)), new Index2D(rand.nextInt(w), rand.nextInt(h)), cyclic);
+            }
+        }
+    }
+
+    /**
+     * Test a pure loop (a corridor without junctions) and a cyclic row
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testLoops() {
+        Map ring = new Map(10, 10, 0);
+        ring.drawRect(new Index2D(1, 1), new Index2D(8, 8), -1);
+        CorridorGraph graph = new CorridorGraph(ring, -1, false);
+        assertEquals(1, graph.junctionCount());
+        assertEquals(19, graph.shortestPath(new Index2D(0, 0), new Index2D(9, 9)).length);
+        checkPath(ring, graph, new Index2D(3, 0), new Index2D(9, 4), false);
+        checkPath(ring, graph, new Index2D(0, 5), new Index2D(0, 5), false);
+        Map row = new Map(12, 1, 0);
+        CorridorGraph cyclicRow = new CorridorGraph(row, -1, true);
+        assertEquals(3, cyclicRow.shortestPath(new Index2D(11, 0), new Index2D(1, 0)).length);
+        checkPath(row, cyclicRow, new Index2D(2, 0), new Index2D(9, 0), true);
+    }
+
+    /**
+     * Test that the graph is repaired after pixels change, and rebuilt after the map is replaced
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testUpdates() {
+        Random rand = new Random(33);
+        for (int i = 0; i < 10; i++) {
+            boolean cyclic = rand.nextBoolean();
+            Map map = MapTest.maze(rand, 41, 31);
+            CorridorGraph graph = new CorridorGraph(map, -1, cyclic);
+            for (int round = 0; round < 20; round++) {
+                for (int j = 0; j < 1 + rand.nextInt(3); j++) {
+                    map.setPixel(rand.nextInt(41), rand.nextInt(31), rand.nextBoolean() ? -1 : 0);
+                }
+                for (int j = 0; j < 5; j++) {
+                    checkPath(map, graph, randomFree(rand, map), randomFree(rand, map), cyclic);
+                }
+            }
+            map.init(MapTest.maze(rand, 21, 25).getMap());
+            checkPath(map, graph, randomFree(rand, map), randomFree(rand, map), cyclic);
+            graph.detach();
+        }
+    }
+
+    /**
+     * Test that queries after an edit find that there is no path without building the component index of the map
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testNoGlobalConnectivityCheck() {
+        Map map = MapTest.maze(new Random(34), 31, 31);
+        CorridorGraph graph = new CorridorGraph(map, -1, false);
+        map.drawRect(new Index2D(0, 15), new Index2D(30, 15), -1);
+        assertNull(graph.shortestPath(new Index2D(0, 0), new Index2D(30, 30)));
+        assertNull(graph.shortestPath(new Index2D(0, 0), new Index2D(0, 15)));
+        assertNull(graph.shortestPath(new Index2D(0, 0), new Index2D(31, 0)));
+        assertNull(map.currentComponentIndex(-1, false));
+        checkPath(map, graph, new Index2D(0, 0), new Index2D(30, 14), false);
+    }
+
+    /**
+     * Checks that the path of the graph is a valid path, as long as the BFS path
+     */
+    private static void checkPath(Map map, CorridorGraph graph, Pixel2D p1, Pixel2D p2, boolean cyclic) {
+        Pixel2D[] expected = map.shortestPath(p1, p2, -1, cyclic);
+        Pixel2D[] path = graph.shortestPath(p1, p2);
+        if (expected == null) {
+            assertNull(path);
+            return;
+        }
+        MapTest.assertValidPath(map, path, p1, p2, -1, cyclic);
+        assertEquals(expected.length, path.length);
+    }
+
+    /**
+     * Picks a random passable pixel
+     */
+    private static Pixel2D randomFree(Random rand, Map map) {
+        while (true) {
+            Pixel2D p = new Index2D(rand.nextInt(map.getWidth()), rand.nextInt(map.getHeight()));
+            if (map.getPixel(p) != -1) {
+                return p;
+            }
+        }
+    }
+}
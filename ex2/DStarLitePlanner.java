@@ -0,0 +1,296 @@
+package ex2;
+
+import java.util.Arrays;
+
+/**
+ * An incremental path planner for an agent moving towards a fixed goal on a changing map (D* Lite).
+ * Based on: S. Koenig and M. Likhachev, "D* Lite", AAAI 2002 (the optimized version of the algorithm).
+ * <p>
+ * The search runs backwards from the goal: g(s) is the distance from s to the goal and rhs(s) is its
+ * one-step lookahead (1 + the smallest g of the passable neighbors). Cells where the two differ are kept
+ * in a priority queue ordered by the key [min(g, rhs) + h(start, s) + km, min(g, rhs)], packed into one long.
+ * When the agent moves, km grows by the heuristic distance it moved, so the queued keys stay valid lower bounds
+ * and nothing is re-sorted; when cells change, only the cells around them are updated, and the next search
+ * repairs just the part of the search tree that the changes affect.
+ * <p>
+ * The planner works on its own snapshot of the passability of the map: the cells that changed since the last
+ * call must be passed to replan, the changes of other cells are not seen.
+ */
+public class DStarLitePlanner {
+    /** The distance of cells that cannot reach the goal (small enough to add keys without overflow). */
+    private static final int INF = Integer.MAX_VALUE / 4;
+
+    /** The map being searched. */
+    private final Map map;
+    /** The color value representing obstacles. */
+    private final int obsColor;
+    /** If true, the map edges wrap around. */
+    private final boolean cyclic;
+    /** The number of cells of the map when the planner was created. */
+    private final int n;
+    /** The packed index of the goal cell. */
+    private final int goal;
+
+    /** The passability of every cell as known to the planner. */
+    private final long[] free;
+    /** The distance estimates of the cells (g values). */
+    private final int[] g;
+    /** The one-step lookahead values of the cells (rhs values). */
+    private final int[] rhs;
+    /** The queue of the inconsistent cells (stale entries are skipped, see openKey). */
+    private final IntPriorityQueue open = new IntPriorityQueue(256);
+    /** The current key of every queued cell. */
+    private final long[] openKey;
+    /** True for the cells that are in the queue. */
+    private final boolean[] inOpen;
+    /** The packed index of the agent's cell at the last search (-1 before the first one). */
+    private int start = -1;
+    /** The key modifier: the sum of the heuristic distances the agent moved. */
+    private int km;
+
+    /**
+     * Constructs a planner towards a goal pixel.
+     * @param map the map to plan on
+     * @param goal the goal pixel
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around)
+     * @throws IllegalArgumentException if the goal is outside the map
+     */
+    public DStarLitePlanner(Map map, Pixel2D goal, int obsColor, boolean cyclic) {
+        if (!map.isInside(goal)) {
+            throw new IllegalArgumentException("goal is outside the map: " + goal);
+        }
+        this.map = map;
+        this.obsColor = obsColor;
+        this.cyclic = cyclic;
+        this.n = map.getWidth() * map.getHeight();
+        this.goal = goal.getY() * map.getWidth() + goal.getX();
+        free = map.passabilityMask(obsColor).words().clone();
+        g = new int[n];
+        rhs = new int[n];
+        Arrays.fill(g, INF);
+        Arrays.fill(rhs, INF);
+        openKey = new long[n];
+        inOpen = new boolean[n];
+        rhs[this.goal] = 0;
+    }
+
+    /**
+     * Plans a path from the agent's position to the goal, on the passability known to the planner.
+     * @param position the agent's pixel
+     * @return an array of consecutive pixels from position to the goal, or null if no path exists
+     */
+    public Pixel2D[] plan(Pixel2D position) {
+        return replan(position, new Pixel2D[0]);
+    }
+
+    /**
+     * Takes the agent's new position and the cells that changed since the last call, and returns the updated
+     * path. Only the part of the previous search that the move and the changes affect is recomputed.
+     * @param position the agent's pixel
+     * @param changedCells the pixels whose value may have changed since the last call (pixels outside the map are ignored)
+     * @return an array of consecutive pixels from position to the goal, or null if no path exists
+     * @throws IllegalStateException if the dimensions of the map changed, or the search left no descending path
+     *         from the position to the goal (an inconsistent planner state)
+     */
+    public Pixel2D[] replan(Pixel2D position, Pixel2D[] changedCells) {
+        if (map.getWidth() * map.getHeight() != n) {
+            throw new IllegalStateException("the dimensions of the map changed");
+        }
+        int width = map.getWidth();
+        int s = map.isInside(position) ? position.getY() * width + position.getX() : -1;
+        if (start < 0) {
+            // First search: the goal is the only inconsistent cell
+            start = s >= 0 ? s : goal;
+            push(goal);
+        }
+        else if (s >= 0 && s != start) {
+            // The queued keys stay lower bounds if km grows by the distance the agent moved
+            km += map.manhattan(start, s, cyclic);
+            start = s;
+        }
+        PassabilityMask mask = map.passabilityMask(obsColor);
+        for (Pixel2D p : changedCells) {
+            if (!map.isInside(p)) {
+                continue;
+            }
+            int cell = p.getY() * width + p.getX();
+            if (mask.passable(cell) == isFree(cell)) {
+                continue;
+            }
+            free[cell >>> 6] ^= 1L << cell;
+            // The costs of all the edges of the cell changed: update it and its neighbors
+            updateLookahead(cell);
+            int x = cell % width;
+            int y = cell / width;
+            for (int dir = Map.UP; dir <= Map.LEFT; dir++) {
+                int next = map.step(x, y, dir, cyclic);
+                if (next >= 0) {
+                    updateLookahead(next);
+                }
+            }
+        }
+        if (s < 0) {
+            return null;
+        }
+        if (!isFree(start) || !isFree(goal)) {
+            return null;
+        }
+        computeShortestPath();
+        if (g[start] >= INF) {
+            return null;
+        }
+        return extractPath();
+    }
+
+    /**
+     * Processes the queue until the start cell is consistent and no queued key is smaller than its key.
+     */
+    private void computeShortestPath() {
+        int width = map.getWidth();
+        while (!open.isEmpty()) {
+            long topKey = open.peekPriority();
+            int u = open.poll();
+            if (!inOpen[u] || openKey[u] != topKey) {
+                continue;
+            }
+            if (topKey >= key(start) && rhs[start] == g[start]) {
+                // Done - put the entry back for the next search
+                open.add(u, topKey);
+                return;
+            }
+            long newKey = key(u);
+            if (topKey < newKey) {
+                // The key grew with km since the cell was queued
+                openKey[u] = newKey;
+                open.add(u, newKey);
+                continue;
+            }
+            inOpen[u] = false;
+            int x = u % width;
+            int y = u / width;
+            if (g[u] > rhs[u]) {
+                // Overconsistent: the cell got closer to the goal, its neighbors may improve
+                g[u] = rhs[u];
+                for (int dir = Map.UP; dir <= Map.LEFT; dir++) {
+                    int next = map.step(x, y, dir, cyclic);
+                    if (next >= 0 && next != goal && isFree(next) && isFree(u) && g[u] + 1 < rhs[next]) {
+                        rhs[next] = g[u] + 1;
+                        update(next);
+                    }
+                }
+            }
+            else {
+                // Underconsistent: the cell got farther, re-derive it and the neighbors that depended on it
+                int old = g[u];
+                g[u] = INF;
+                updateLookahead(u);
+                for (int dir = Map.UP; dir <= Map.LEFT; dir++) {
+                    int next = map.step(x, y, dir, cyclic);
+                    if (next >= 0 && rhs[next] == old + 1) {
+                        updateLookahead(next);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Recomputes the lookahead (rhs) of a cell from its neighbors and updates its queue membership.
+     */
+    private void updateLookahead(int cell) {
+        if (cell != goal) {
+            int best = INF;
+            if (isFree(cell)) {
+                int width = map.getWidth();
+                int x = cell % width;
+                int y = cell / width;
+                for (int dir = Map.UP; dir <= Map.LEFT; dir++) {
+                    int next = map.step(x, y, dir, cyclic);
+                    if (next >= 0 && isFree(next) && g[next] + 1 < best) {
+                        best = g[next] + 1;
+                    }
+                }
+            }
+            rhs[cell] = best;
+        }
+        update(cell);
+    }
+
+    /**
+     * Queues a cell with its current key if it is inconsistent, or dequeues it if it is consistent.
+     */
+    private void update(int cell) {
+        if (g[cell] != rhs[cell]) {
+            push(cell);
+        }
+        else {
+            inOpen[cell] = false;
+        }
+    }
+
+    /**
+     * Queues a cell with its current key (any older entry of the cell becomes stale).
+     */
+    private void push(int cell) {
+        long k = key(cell);
+        openKey[cell] = k;
+        inOpen[cell] = true;
+        open.add(cell, k);
+    }
+
+    /**
+     * @return the packed key [min(g, rhs) + h(start, cell) + km, min(g, rhs)] of a cell
+     */
+    private long key(int cell) {
+        int m = Math.min(g[cell], rhs[cell]);
+        long k1 = (long) m + map.manhattan(start, cell, cyclic) + km;
+        return (k1 << 32) | m;
+    }
+
+    /**
+     * Follows the smallest g values from the start to the goal; every step must lower g.
+     * @return the path from the start to the goal
+     * @throws IllegalStateException if a cell has no neighbor with a smaller g (the planner state is inconsistent,
+     *         e.g. replan was not told about all the changed cells)
+     */
+    private Pixel2D[] extractPath() {
+        int width = map.getWidth();
+        // g[start] is the expected number of steps, but the walk does not rely on it
+        int[] cells = new int[g[start] + 1];
+        int count = 0;
+        int cell = start;
+        cells[count++] = cell;
+        while (cell != goal) {
+            int x = cell % width;
+            int y = cell / width;
+            int best = -1;
+            for (int dir = Map.UP; dir <= Map.LEFT; dir++) {
+                int next = map.step(x, y, dir, cyclic);
+                if (next >= 0 && isFree(next) && (best < 0 || g[next] < g[best])) {
+                    best = next;
+                }
+            }
+            if (best < 0 || g[best] >= g[cell]) {
+                throw new IllegalStateException("no descent from (" + x + "," + y + ") towards the goal: the planner state is inconsistent");
+            }
+            cell = best;
+            if (count == cells.length) {
+                cells = Arrays.copyOf(cells, count * 2);
+            }
+            cells[count++] = cell;
+        }
+        Pixel2D[] path = new Pixel2D[count];
+        for (int i = 0; i < count; i++) {
+            path[i] = new Index2D(cells[i] % width, cells[i] / width);
+        }
+        return path;
+    }
+
+    /**
+     * @return true if the cell is passable as known to the planner
+     */
+    private boolean isFree(int cell) {
+        return (free[cell >>> 6] & (1L << cell)) != 0;
+    }
+}
@@ -0,0 +1,117 @@
+package ex2;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.Random;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for the DStarLitePlanner class.
+ * Every replanned path must be a valid shortest path (the same length as a fresh BFS path).
+ */
+class DStarLitePlannerTest {
+
+    /**
+     * Test the first plan on an open map and on the goal itself
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testPlan() {
+        Map map = new Map(10, 8, 0);
+        DStarLitePlanner planner = new DStarLitePlanner(map, new Index2D(9, 7), -1, false);
+        Pixel2D[] path = planner.plan(new Index2D(0, 0));
+        MapTest.assertValidPath(map, path, new Index2D(0, 0), new Index2D(9, 7), -1, false);
+        assertEquals(17, path.length);
+        assertEquals(1, planner.plan(new Index2D(9, 7)).length);
+        assertNull(planner.plan(new Index2D(10, 0)));
+    }
+
+    /**
+     * Test an agent walking its path while a wall is built in front of it and later opened
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testWalkWithChanges() {
+        Map map = new Map(12, 12, 0);
+        Pixel2D goal = new Index2D(11, 6);
+        DStarLitePlanner planner = new DStarLitePlanner(map, goal, -1, false);
+        Pixel2D[] path = planner.plan(new Index2D(0, 6));
+        assertEquals(12, path.length);
+        // Walk two steps, then a wall with a gap at the top appears across the map
+        Pixel2D position = path[2];
+        Pixel2D[] wall = new Pixel2D[11];
+        for (int y = 0; y < 11; y++) {
+            wall[y] = new Index2D(6, y);
+            map.setPixel(wall[y], -1);
+        }
+        path = planner.replan(position, wall);
+        MapTest.assertValidPath(map, path, position, goal, -1, false);
+        assertEquals(map.shortestPath(position, goal, -1, false).length, path.length);
+        // Close the gap - no path; then open a gap at the bottom
+        map.setPixel(6, 11, -1);
+        assertNull(planner.replan(position, new Pixel2D[]{new Index2D(6, 11)}));
+        map.setPixel(6, 0, 0);
+        path = planner.replan(position, new Pixel2D[]{new Index2D(6, 0)});
+        MapTest.assertValidPath(map, path, position, goal, -1, false);
+        assertEquals(map.shortestPath(position, goal, -1, false).length, path.length);
+    }
+
+    /**
+     * Test random walks with random changes against BFS path lengths
+     */
+    @Test
+    @Timeout(value = 2, unit = SECONDS)
+    void testMatchesBfs() {
+        Random rand = new Random(18);
+        for (int i = 0; i < 60; i++) {
+            int w = 1 + rand.nextInt(20);
+            int h = 1 + rand.nextInt(20);
+            boolean cyclic = rand.nextBoolean();
+            Map map = new Map(w, h, 0);
+            for (int j = 0; j < w * h / 4; j++) {
+                map.setPixel(rand.nextInt(w), rand.nextInt(h), -1);
+            }
+            Pixel2D goal = new Index2D(rand.nextInt(w), rand.nextInt(h));
+            Pixel2D position = new Index2D(rand.nextInt(w), rand.nextInt(h));
+            DStarLitePlanner planner = new DStarLitePlanner(map, goal, -1, cyclic);
+            Pixel2D[] changed = new Pixel2D[0];
+            for (int step = 0; step < 15; step++) {
+                Pixel2D[] path = planner.replan(position, changed);
+                Pixel2D[] bfs = map.shortestPath(position, goal, -1, cyclic);
+                if (bfs == null) {
+                    assertNull(path);
+                }
+                else {
+                    MapTest.assertValidPath(map, path, position, goal, -1, cyclic);
+                    assertEquals(bfs.length, path.length);
+                    if (path.length > 1) {
+                        position = path[1];
+                    }
+                }
+                changed = new Pixel2D[rand.nextInt(4)];
+                for (int c = 0; c < changed.length; c++) {
+                    changed[c] = new Index2D(rand.nextInt(w), rand.nextInt(h));
+                    if (!changed[c].equals(position)) {
+                        map.setPixel(changed[c], rand.nextBoolean() ? -1 : 0);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Test that a goal outside the map and a resized map are rejected
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testIllegalUse() {
+        Map map = new Map(5, 5, 0);
+        assertThrows(IllegalArgumentException.class, () -> new DStarLitePlanner(map, new Index2D(5, 0), -1, false));
+        DStarLitePlanner planner = new DStarLitePlanner(map, new Index2D(4, 4), -1, false);
+        map.init(6, 6, 0);
+        assertThrows(IllegalStateException.class, () -> planner.plan(new Index2D(0, 0)));
+    }
+}
@@ -0,0 +1,124 @@
+package ex2;
+
+/**
+ * Dijkstra's algorithm over a Map where the pixel values are terrain costs, with Dial's bucket queue.
+ * Stepping into a cell costs its value (so the cost of a path is the sum of the values of its pixels
+ * after the first one), and cells of obsColor cannot be entered.
+ * With the largest cost C, the queue needs C + 1 buckets and every operation is O(1) amortized,
+ * so a search is O(n + D) for n cells and a largest distance D - near-linear for the small costs (0-4)
+ * of the generated mazes. Maps with costs above MAX_BUCKETS fall back to the binary heap (IntPriorityQueue).
+ * The costs are int: a least-cost path enters every cell at most once, so the constructor rejects maps whose
+ * passable cells cost more than Integer.MAX_VALUE in total. The sums are still computed in long, since stepping
+ * back into a settled cell can go over Integer.MAX_VALUE (such a step is never part of a least-cost path).
+ */
+class DialSearch {
+    /** The largest cost handled with a bucket queue. */
+    static final int MAX_BUCKETS = 1 << 12;
+
+    /** The map being searched. */
+    private final Map map;
+    /** The passable cells of the map. */
+    private final PassabilityMask mask;
+    /** If true, the map edges wrap around. */
+    private final boolean cyclic;
+    /** The largest cost of a passable cell. */
+    private final int maxCost;
+
+    /**
+     * Constructs a search over the given map, checking its costs.
+     * @param map the map to search
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around)
+     * @throws IllegalArgumentException if a passable pixel has a negative value,
+     *         or the values of the passable pixels add up to more than Integer.MAX_VALUE
+     */
+    DialSearch(Map map, int obsColor, boolean cyclic) {
+        this.map = map;
+        this.mask = map.passabilityMask(obsColor);
+        this.cyclic = cyclic;
+        int width = map.getWidth();
+        int max = 0;
+        long total = 0;
+        for (int cell = 0; cell < width * map.getHeight(); cell++) {
+            int cost = map.pixelAt(cell);
+            if (mask.passable(cell)) {
+                if (cost < 0) {
+                    throw new IllegalArgumentException("negative cost " + cost + " at (" + (cell % width) + "," + (cell / width) + ")");
+                }
+                max = Math.max(max, cost);
+                total += cost;
+            }
+        }
+        if (total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("total cost " + total + " of the passable pixels exceeds " + Integer.MAX_VALUE);
+        }
+        this.maxCost = max;
+    }
+
+    /**
+     * Computes the least costs from the start cell, stopping once the target is settled.
+     * @param start the packed index of a passable start cell
+     * @param target a cell index to stop at once its cost is final, or -1 to settle every reachable cell
+     * @param dist per-cell cost, all -1 on entry
+     * @param parent per-cell parent index in the shortest path tree, or null if parents are not needed
+     */
+    void run(int start, int target, int[] dist, int[] parent) {
+        BucketQueue buckets = maxCost <= MAX_BUCKETS ? new BucketQueue(maxCost) : null;
+        IntPriorityQueue heap = buckets == null ? new IntPriorityQueue(256) : null;
+        int width = map.getWidth();
+        dist[start] = 0;
+        if (parent != null) {
+            parent[start] = -1;
+        }
+        if (buckets != null) {
+            buckets.add(start, 0);
+        }
+        else {
+            heap.add(start, 0);
+        }
+        while (buckets != null ? !buckets.isEmpty() : !heap.isEmpty()) {
+            int d;
+            int current;
+            if (buckets != null) {
+                current = buckets.poll();
+                d = buckets.lastPriority();
+            }
+            else {
+                d = (int) heap.peekPriority();
+                current = heap.poll();
+            }
+            // A cell is only added again with a lower cost, so an entry with another cost is stale
+            if (dist[current] != d) {
+                continue;
+            }
+            if (current == target) {
+                return;
+            }
+            int x = current % width;
+            int y = current / width;
+            for (int dir = Map.UP; dir <= Map.LEFT; dir++) {
+                int next = map.step(x, y, dir, cyclic);
+                if (next < 0 || !mask.passable(next)) {
+                    continue;
+                }
+                long sum = (long) d + map.pixelAt(next);
+                if (sum > Integer.MAX_VALUE) {
+                    continue;
+                }
+                int nextDist = (int) sum;
+                if (dist[next] == -1 || nextDist < dist[next]) {
+                    dist[next] = nextDist;
+                    if (parent != null) {
+                        parent[next] = current;
+                    }
+                    if (buckets != null) {
+                        buckets.add(next, nextDist);
+                    }
+                    else {
+                        heap.add(next, nextDist);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package ex2;
+
+/**
+ * A direction-optimizing BFS over a Map (Beamer, Asanovic and Patterson, "Direction-Optimizing Breadth-First Search"),
+ * used by {@link Map#allDistanceDirectionOptimizing(Pixel2D, int, boolean)}.
+ * <p>
+ * Small frontiers are expanded top-down (every frontier cell pushes its unvisited neighbors, as in the kernel BFS).
+ * Once the frontier is large compared to the unvisited part of the map, the traversal switches to bottom-up:
+ * every unvisited passable cell checks whether one of its neighbors is in the frontier, scanning 64 cells per
+ * word of the bitsets of passable, visited and frontier cells. When the frontier shrinks again, it switches back.
+ * Both directions visit the cells level by level, so the distances are the ones of the plain BFS.
+ */
+class DirectionOptimizingBfs {
+    /** Switch to bottom-up once the frontier is larger than the unvisited cells divided by ALPHA. */
+    static final int ALPHA = 14;
+    /** Switch back to top-down once a shrinking frontier is smaller than the map cells divided by BETA. */
+    static final int BETA = 24;
+
+    /** The traversed map. */
+    private final Map map;
+    /** The passable cells of the map. */
+    private final long[] free;
+    /** If true, the map edges wrap around. */
+    private final boolean cyclic;
+    /** The number of cells of the map. */
+    private final int n;
+
+    /**
+     * Constructs a direction-optimizing BFS.
+     * @param map the map to traverse
+     * @param obsColor the color value representing obstacles
+     * @param cyclic if true, the map edges wrap around
+     */
+    DirectionOptimizingBfs(Map map, int obsColor, boolean cyclic) {
+        this.map = map;
+        this.free = map.passabilityMask(obsColor).words();
+        this.cyclic = cyclic;
+        this.n = map.getWidth() * map.getHeight();
+    }
+
+    /**
+     * Computes the distances of all the cells reachable from start.
+     * @param start the packed index of a passable start cell
+     * @param dist per-cell distance, all -1 on entry
+     */
+    void run(int start, int[] dist) {
+        int words = free.length;
+        int unvisited = 0;
+        for (long word : free) {
+            unvisited += Long.bitCount(word);
+        }
+        long[] visited = new long[words];
+        long[] frontier = new long[words];
+        long[] next = new long[words];
+        // In top-down mode the current level is queue[head..tail), in bottom-up mode it is the frontier bitset
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 1;
+        queue[0] = start;
+        dist[start] = 0;
+        visited[start >>> 6] |= 1L << start;
+        unvisited--;
+        boolean bottomUp = false;
+        int size = 1;
+        int previous = 0;
+        int level = 0;
+        while (size > 0) {
+            level++;
+            if (!bottomUp && size > unvisited / ALPHA) {
+                // Switch to bottom-up: move the frontier list into the bitset
+                for (int i = head; i < tail; i++) {
+                    frontier[queue[i] >>> 6] |= 1L << queue[i];
+                }
+                bottomUp = true;
+            }
+            else if (bottomUp && size < n / BETA && size < previous) {
+                // Switch to top-down: move the frontier bitset into the list
+                head = 0;
+                tail = 0;
+                for (int w = 0; w < words; w++) {
+                    long bits = frontier[w];
+                    frontier[w] = 0;
+                    while (bits != 0) {
+                        queue[tail++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+                    }
+                }
+                bottomUp = false;
+            }
+            previous = size;
+            if (bottomUp) {
+                size = bottomUpStep(visited, frontier, next, dist, level);
+                long[] swap = frontier;
+                frontier = next;
+                next = swap;
+            }
+            else {
+                int end = tail;
+                tail = topDownStep(queue, head, tail, visited, dist, level);
+                head = end;
+                size = tail - head;
+            }
+            unvisited -= size;
+        }
+    }
+
+    /**
+     * Expands the frontier list queue[head..tail), appending the next level to the queue.
+     * @return the new tail of the queue
+     */
+    private int topDownStep(int[] queue, int head, int tail, long[] visited, int[] dist, int level) {
+        int width = map.getWidth();
+        int end = tail;
+        for (int i = head; i < end; i++) {
+            int cell = queue[i];
+            int x = cell % width;
+            int y = cell / width;
+            for (int dir = Map.UP; dir <= Map.LEFT; dir++) {
+                int next = map.step(x, y, dir, cyclic);
+                if (next >= 0 && (visited[next >>> 6] & (1L << next)) == 0 && (free[next >>> 6] & (1L << next)) != 0) {
+                    visited[next >>> 6] |= 1L << next;
+                    dist[next] = level;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * Finds the next level by checking every unvisited passable cell against the frontier bitset.
+     * The next bitset must be clear on entry; the frontier bitset is cleared on exit.
+     * @return the number of cells of the next level
+     */
+    private int bottomUpStep(long[] visited, long[] frontier, long[] next, int[] dist, int level) {
+        int width = map.getWidth();
+        int count = 0;
+        for (int w = 0; w < free.length; w++) {
+            long candidates = free[w] & ~visited[w];
+            while (candidates != 0) {
+                int cell = (w << 6) + Long.numberOfTrailingZeros(candidates);
+                candidates &= candidates - 1;
+                int x = cell % width;
+                int y = cell / width;
+                for (int dir = Map.UP; dir <= Map.LEFT; dir++) {
+                    int parent = map.step(x, y, dir, cyclic);
+                    if (parent >= 0 && (frontier[parent >>> 6] & (1L << parent)) != 0) {
+                        dist[cell] = level;
+                        next[w] |= 1L << cell;
+                        count++;
+                        break;
+                    }
+                }
+            }
+        }
+        // Only now the new level may be marked visited (the candidates of a word were read before)
+        for (int w = 0; w < free.length; w++) {
+            visited[w] |= next[w];
+            frontier[w] = 0;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,122 @@
+package ex2;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A bounded LRU cache of allDistance results of one Map, keyed by (start, obsColor, cyclic).
+ * The cache holds at most a given number of bytes of distance maps (4 bytes per pixel plus a small
+ * per-entry overhead); the least recently used maps are evicted first.
+ * All the entries belong to one version (modification count) of the map - a lookup or insertion with
+ * another version drops everything. The cached maps are shared, so they are stored as read-only views.
+ */
+class DistanceCache {
+    /** The estimated memory of an entry besides its pixels (key, view, map object and array headers). */
+    private static final long ENTRY_OVERHEAD = 128;
+
+    /** The cached maps, in access order (least recently used first). */
+    private final LinkedHashMap<Long, ReadOnlyMap> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /** The memory budget in bytes. */
+    private long budget;
+    /** The estimated memory of the cached maps in bytes. */
+    private long used;
+    /** The map version the entries belong to. */
+    private int version;
+
+    /**
+     * Constructs an empty cache.
+     * @param budget the memory budget in bytes
+     */
+    DistanceCache(long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Packs a cache key.
+     * @param start the packed index of the start cell
+     * @param obsColor the color value representing obstacles
+     * @param cyclic if true, the map edges wrap around
+     * @return the key of (start, obsColor, cyclic)
+     */
+    static long key(int start, int obsColor, boolean cyclic) {
+        return ((long) start << 33) | ((obsColor & 0xFFFFFFFFL) << 1) | (cyclic ? 1 : 0);
+    }
+
+    /**
+     * Looks up a cached map (and marks it as the most recently used).
+     * @param key the cache key
+     * @param version the current modification count of the map
+     * @return the cached map, or null if there is none for this key and version
+     */
+    synchronized ReadOnlyMap get(long key, int version) {
+        checkVersion(version);
+        return entries.get(key);
+    }
+
+    /**
+     * Adds a map to the cache, evicting the least recently used maps to stay within the budget.
+     * A map larger than the whole budget is not cached.
+     * @param key the cache key
+     * @param value the map to cache
+     * @param version the modification count of the map the value was computed for
+     */
+    synchronized void put(long key, ReadOnlyMap value, int version) {
+        checkVersion(version);
+        long weight = weight(value);
+        if (weight > budget) {
+            return;
+        }
+        ReadOnlyMap old = entries.put(key, value);
+        if (old != null) {
+            used -= weight(old);
+        }
+        used += weight;
+        evict();
+    }
+
+    /**
+     * Changes the memory budget (evicting maps if the cache is now over the budget).
+     * @param budget the memory budget in bytes
+     */
+    synchronized void setBudget(long budget) {
+        this.budget = budget;
+        evict();
+    }
+
+    /**
+     * @return the number of cached maps
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Drops all the entries if they belong to another version of the map.
+     * @param version the current modification count of the map
+     */
+    private void checkVersion(int version) {
+        if (version != this.version) {
+            entries.clear();
+            used = 0;
+            this.version = version;
+        }
+    }
+
+    /**
+     * Evicts least recently used maps until the cache fits in the budget.
+     */
+    private void evict() {
+        Iterator<ReadOnlyMap> it = entries.values().iterator();
+        while (used > budget && it.hasNext()) {
+            used -= weight(it.next());
+            it.remove();
+        }
+    }
+
+    /**
+     * @return the estimated memory of a cached map in bytes
+     */
+    private static long weight(ReadOnlyMap map) {
+        return 4L * map.getWidth() * map.getHeight() + ENTRY_OVERHEAD;
+    }
+}
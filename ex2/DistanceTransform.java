@@ -0,0 +1,229 @@
+package ex2;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The exact Euclidean distance transform of a Map (see {@link Map#distanceTransform(int)}): for every pixel,
+ * the Euclidean distance (as in {@link Index2D#distance2D}) to the nearest pixel of a given color.
+ * Based on: P. Felzenszwalb and D. Huttenlocher, "Distance Transforms of Sampled Functions", 2012.
+ * <p>
+ * The squared distance is separable: a first pass computes, in every column, the squared distance to the nearest
+ * feature pixel of the column (two linear sweeps), and a second pass computes, in every row, the lower envelope
+ * of the parabolas (x - q)^2 + f(q) of the first pass results. Both passes are O(width * height), and the
+ * columns (and then the rows) are independent, so each pass runs in parallel on the common fork-join pool.
+ * The squared distances are integers and exact; when the map has no pixel of the color, every distance is -1.
+ * They are stored and computed in int, so the constructor rejects maps whose diagonal (width-1)^2 + (height-1)^2
+ * (the largest possible squared distance) does not fit; that leaves room for maps of about 32700 x 32700.
+ * The distances are not cyclic (the map edges are boundaries).
+ */
+public class DistanceTransform {
+    /** The number of pixels below which the passes run on the calling thread. */
+    private static final int SEQUENTIAL_THRESHOLD = 1 << 16;
+    /** The squared distance of pixels with no feature pixel (in a column during the first pass). */
+    private static final int INF = Integer.MAX_VALUE;
+
+    /** The dimensions of the map. */
+    private final int width, height;
+    /** The squared distance of every pixel to the nearest feature pixel, row-major (-1 if there is none). */
+    private final int[] squared;
+
+    /**
+     * Computes the distance transform of a map.
+     * @param map the map
+     * @param color the color of the feature pixels (the pixels at distance 0)
+     * @throws IllegalArgumentException if the largest possible squared distance of the map does not fit in an int
+     */
+    DistanceTransform(Map map, int color) {
+        this.width = map.getWidth();
+        this.height = map.getHeight();
+        long diagonal = (long) (width - 1) * (width - 1) + (long) (height - 1) * (height - 1);
+        if (diagonal > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("the squared distances of a " + width + "x" + height + " map do not fit in an int");
+        }
+        this.squared = new int[width * height];
+        boolean found = false;
+        for (int cell = 0; cell < squared.length; cell++) {
+            boolean feature = map.pixelAt(cell) == color;
+            squared[cell] = feature ? 0 : INF;
+            found |= feature;
+        }
+        if (!found) {
+            Arrays.fill(squared, -1);
+            return;
+        }
+        if (squared.length < SEQUENTIAL_THRESHOLD) {
+            columns(0, width);
+            rows(0, height);
+        }
+        else {
+            int parallelism = 4 * ForkJoinPool.getCommonPoolParallelism();
+            ForkJoinPool.commonPool().invoke(new Pass(true, 0, width, Math.max(1, width / parallelism)));
+            ForkJoinPool.commonPool().invoke(new Pass(false, 0, height, Math.max(1, height / parallelism)));
+        }
+    }
+
+    /**
+     * @param p a pixel
+     * @return the squared Euclidean distance to the nearest pixel of the color,
+     *         or -1 if there is none or p is outside the map
+     */
+    public int getSquaredDistance(Pixel2D p) {
+        if (p.getX() < 0 || p.getY() < 0 || p.getX() >= width || p.getY() >= height) {
+            return -1;
+        }
+        return squared[p.getY() * width + p.getX()];
+    }
+
+    /**
+     * @param p a pixel
+     * @return the Euclidean distance to the nearest pixel of the color,
+     *         or -1 if there is none or p is outside the map
+     */
+    public float getDistance(Pixel2D p) {
+        int d = getSquaredDistance(p);
+        return d < 0 ? -1 : (float) Math.sqrt(d);
+    }
+
+    /**
+     * @return a new Map2D where each pixel contains its squared distance to the nearest pixel of the color
+     *         (or -1 if there is none)
+     */
+    public Map2D toMap() {
+        return new Map(width, height, squared.clone());
+    }
+
+    /**
+     * @return a new [height][width] array (the layout of getMap) of the distances to the nearest pixel of the color
+     *         (or -1 if there is none)
+     */
+    public float[][] toFloatArray() {
+        float[][] result = new float[height][width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int d = squared[y * width + x];
+                result[y][x] = d < 0 ? -1 : (float) Math.sqrt(d);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * First pass: the squared distance to the nearest feature pixel of the same column (INF if there is none).
+     * @param lo the first column
+     * @param hi the end (exclusive) of the range of columns
+     */
+    private void columns(int lo, int hi) {
+        for (int x = lo; x < hi; x++) {
+            // First sweep: the distance to the nearest feature with a smaller y; second sweep: with a larger y
+            int last = -1;
+            for (int y = 0; y < height; y++) {
+                int cell = y * width + x;
+                if (squared[cell] == 0) {
+                    last = y;
+                }
+                else if (last >= 0) {
+                    squared[cell] = y - last;
+                }
+            }
+            last = -1;
+            for (int y = height - 1; y >= 0; y--) {
+                int cell = y * width + x;
+                if (squared[cell] == 0) {
+                    last = y;
+                }
+                else if (last >= 0 && (squared[cell] == INF || last - y < squared[cell])) {
+                    squared[cell] = last - y;
+                }
+            }
+            for (int y = 0; y < height; y++) {
+                int cell = y * width + x;
+                if (squared[cell] != INF) {
+                    squared[cell] *= squared[cell];
+                }
+            }
+        }
+    }
+
+    /**
+     * Second pass: the lower envelope of the parabolas of every row.
+     * @param lo the first row
+     * @param hi the end (exclusive) of the range of rows
+     */
+    private void rows(int lo, int hi) {
+        int[] f = new int[width];
+        int[] v = new int[width];
+        double[] z = new double[width + 1];
+        for (int y = lo; y < hi; y++) {
+            System.arraycopy(squared, y * width, f, 0, width);
+            // v[0..k] are the apexes of the parabolas of the envelope, z[i] the start of parabola v[i]
+            int k = -1;
+            for (int q = 0; q < width; q++) {
+                if (f[q] == INF) {
+                    continue;
+                }
+                double s = 0;
+                while (k >= 0) {
+                    int p = v[k];
+                    s = ((f[q] + (double) q * q) - (f[p] + (double) p * p)) / (2.0 * (q - p));
+                    if (s > z[k]) {
+                        break;
+                    }
+                    k--;
+                }
+                k++;
+                v[k] = q;
+                z[k] = k == 0 ? Double.NEGATIVE_INFINITY : s;
+                z[k + 1] = Double.POSITIVE_INFINITY;
+            }
+            int j = 0;
+            for (int x = 0; x < width; x++) {
+                while (z[j + 1] < x) {
+                    j++;
+                }
+                int dx = x - v[j];
+                squared[y * width + x] = dx * dx + f[v[j]];
+            }
+        }
+    }
+
+    /**
+     * A fork-join task running a pass over a range of columns or rows (split in halves down to grain lines).
+     */
+    private class Pass extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        /** True for the column pass, false for the row pass. */
+        private final boolean columns;
+        /** The first line of the range. */
+        private final int lo;
+        /** The end (exclusive) of the range. */
+        private final int hi;
+        /** The number of lines handled by one task. */
+        private final int grain;
+
+        Pass(boolean columns, int lo, int hi, int grain) {
+            this.columns = columns;
+            this.lo = lo;
+            this.hi = hi;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= grain) {
+                if (columns) {
+                    columns(lo, hi);
+                }
+                else {
+                    rows(lo, hi);
+                }
+            }
+            else {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Pass(columns, lo, mid, grain), new Pass(columns, mid, hi, grain));
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package ex2;
+
+/**
+ * The result of a bounded allDistance (see {@link Map#allDistanceWithin(Pixel2D, int, boolean, int, Pixel2D[])}):
+ * the distances of the touched pixels, stored only for the bounding box (window) of those pixels.
+ * The window starts at the map pixel (originX, originY); in cyclic mode it may wrap around the map edges,
+ * so a map pixel (x, y) is at ((x - originX) mod mapWidth, (y - originY) mod mapHeight) in the window.
+ * Pixels outside the window, and pixels inside it that were not reached, have the distance -1.
+ */
+public class DistanceWindow {
+    /** The map coordinates of the window's first pixel. */
+    private final int originX, originY;
+    /** The dimensions of the window. */
+    private final int width, height;
+    /** The dimensions of the map. */
+    private final int mapWidth, mapHeight;
+    /** The distances of the window pixels, row-major (-1 if not reached). */
+    private final int[] dist;
+
+    /**
+     * Constructs a window.
+     * @param originX the x coordinate (in the map) of the window's first pixel
+     * @param originY the y coordinate (in the map) of the window's first pixel
+     * @param width the width of the window
+     * @param height the height of the window
+     * @param mapWidth the width of the map
+     * @param mapHeight the height of the map
+     * @param dist the distances of the window pixels, row-major
+     */
+    DistanceWindow(int originX, int originY, int width, int height, int mapWidth, int mapHeight, int[] dist) {
+        this.originX = originX;
+        this.originY = originY;
+        this.width = width;
+        this.height = height;
+        this.mapWidth = mapWidth;
+        this.mapHeight = mapHeight;
+        this.dist = dist;
+    }
+
+    /**
+     * @return the x coordinate (in the map) of the window's first pixel
+     */
+    public int getOriginX() {
+        return originX;
+    }
+
+    /**
+     * @return the y coordinate (in the map) of the window's first pixel
+     */
+    public int getOriginY() {
+        return originY;
+    }
+
+    /**
+     * @return the width of the window (0 if no pixel was reached)
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the window (0 if no pixel was reached)
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @param x the x coordinate of a map pixel
+     * @param y the y coordinate of a map pixel
+     * @return the distance of the pixel from the start, or -1 if it was not reached
+     */
+    public int getDistance(int x, int y) {
+        if (x < 0 || y < 0 || x >= mapWidth || y >= mapHeight) {
+            return -1;
+        }
+        int lx = x - originX;
+        int ly = y - originY;
+        // A window never starts right of its pixels, unless it wraps around the map edge
+        if (lx < 0) {
+            lx += mapWidth;
+        }
+        if (ly < 0) {
+            ly += mapHeight;
+        }
+        if (lx >= width || ly >= height) {
+            return -1;
+        }
+        return dist[ly * width + lx];
+    }
+
+    /**
+     * @param p a map pixel
+     * @return the distance of the pixel from the start, or -1 if it was not reached
+     */
+    public int getDistance(Pixel2D p) {
+        return getDistance(p.getX(), p.getY());
+    }
+
+    /**
+     * @return a new Map2D of the window's dimensions with the window distances
+     *         (window pixel (i, j) is the map pixel ((originX + i) mod mapWidth, (originY + j) mod mapHeight))
+     */
+    public Map2D toMap() {
+        return new Map(width, height, dist.clone());
+    }
+}
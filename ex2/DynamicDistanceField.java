@@ -0,0 +1,267 @@
+package ex2;
+
+import java.util.Arrays;
+
+/**
+ * The BFS distances from one source pixel (as computed by {@link Map#allDistance(Pixel2D, int, boolean)}),
+ * kept up to date while the map changes.
+ * The field listens to the map: every change compares the passability of the changed rectangle with its own
+ * snapshot, and the pixels that became blocked or free are queued. The next query repairs the distances of the
+ * queued pixels in one pass, touching only the region whose distances actually change:
+ * <ol>
+ * <li>Decremental step: a pixel keeps its distance d if a neighbor at distance d-1 kept its own. The pixels
+ * next to the blocked ones are checked in increasing order of distance, and the ones that lost all their
+ * supports lose their distance (and their dependents are checked in turn).</li>
+ * <li>Every pixel that lost its distance, and every freed pixel, is seeded with 1 + the smallest distance
+ * of its neighbors.</li>
+ * <li>Incremental step: the seeds are settled in increasing order of distance (Dijkstra with unit steps),
+ * lowering the distances of their neighbors.</li>
+ * </ol>
+ * The repaired distances are always identical to a fresh allDistance.
+ */
+public class DynamicDistanceField implements MapListener {
+    /** The map whose distances are tracked. */
+    private final Map map;
+    /** The source pixel. */
+    private final Pixel2D source;
+    /** The color value representing obstacles. */
+    private final int obsColor;
+    /** If true, the map edges wrap around. */
+    private final boolean cyclic;
+
+    /** The width of the map. */
+    private int width;
+    /** The packed index of the source, or -1 if it is outside the map. */
+    private int sourceCell;
+    /** The distance of every cell from the source (-1 if unreachable). */
+    private int[] dist;
+    /** The passability of every cell the distances were computed for. */
+    private long[] free;
+    /** The cells whose passability changed since the last repair (a cell may appear more than once). */
+    private int[] pending;
+    /** The number of entries in pending. */
+    private int pendingCount;
+
+    /**
+     * Computes the distances of a map and starts tracking its changes.
+     * @param map the map
+     * @param source the source pixel
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around)
+     */
+    public DynamicDistanceField(Map map, Pixel2D source, int obsColor, boolean cyclic) {
+        this.map = map;
+        this.source = new Index2D(source);
+        this.obsColor = obsColor;
+        this.cyclic = cyclic;
+        build();
+        map.addListener(this);
+    }
+
+    /**
+     * Stops tracking the changes of the map (the field must not be used afterwards).
+     */
+    public void detach() {
+        map.removeListener(this);
+    }
+
+    /**
+     * @param p a pixel of the map
+     * @return the distance of the pixel from the source, or -1 if it is unreachable (or outside the map)
+     */
+    public int getDistance(Pixel2D p) {
+        if (!map.isInside(p)) {
+            return -1;
+        }
+        repair();
+        return dist[p.getY() * width + p.getX()];
+    }
+
+    /**
+     * Returns a snapshot of the field. The distances are copied once (a single array copy, without the
+     * int[][] conversion of the public constructors), since later repairs keep updating the field.
+     * @return a new Map2D where each pixel contains its distance from the source, or -1 if unreachable
+     *         (equal to allDistance of the current map)
+     */
+    public Map2D toMap() {
+        repair();
+        return new Map(width, map.getHeight(), dist.clone());
+    }
+
+    /**
+     * Queues the pixels of the changed rectangle whose passability changed.
+     */
+    @Override
+    public void regionChanged(Map map, int minX, int minY, int maxX, int maxY) {
+        PassabilityMask mask = map.passabilityMask(obsColor);
+        for (int y = minY; y <= maxY; y++) {
+            for (int cell = y * width + minX; cell <= y * width + maxX; cell++) {
+                if (mask.passable(cell) != isFree(cell)) {
+                    free[cell >>> 6] ^= 1L << cell;
+                    if (pendingCount == pending.length) {
+                        pending = Arrays.copyOf(pending, pendingCount * 2);
+                    }
+                    pending[pendingCount++] = cell;
+                }
+            }
+        }
+    }
+
+    /**
+     * Recomputes all the distances (the dimensions of the map may have changed).
+     */
+    @Override
+    public void mapReset(Map map) {
+        build();
+    }
+
+    /**
+     * Computes all the distances from scratch.
+     */
+    private void build() {
+        width = map.getWidth();
+        free = map.passabilityMask(obsColor).words().clone();
+        pending = new int[16];
+        pendingCount = 0;
+        sourceCell = map.isInside(source) ? source.getY() * width + source.getX() : -1;
+        dist = map.newDistanceArray();
+        if (sourceCell >= 0 && isFree(sourceCell)) {
+            int[] queue = new int[dist.length];
+            queue[0] = sourceCell;
+            dist[sourceCell] = 0;
+            map.bfs(queue, 1, dist, null, -1, obsColor, cyclic);
+        }
+    }
+
+    /**
+     * Repairs the distances after the queued passability changes.
+     */
+    private void repair() {
+        if (pendingCount == 0) {
+            return;
+        }
+        if (sourceCell < 0) {
+            pendingCount = 0;
+            return;
+        }
+        if (!isFree(sourceCell)) {
+            // The source itself is blocked: nothing is reachable
+            Arrays.fill(dist, -1);
+            pendingCount = 0;
+            return;
+        }
+        if (dist[sourceCell] == -1) {
+            // The source was freed again: every distance changes
+            build();
+            return;
+        }
+        // Decremental step: find the cells that lost every shortest path to the source
+        IntPriorityQueue queue = new IntPriorityQueue(64);
+        int[] lost = new int[16];
+        int lostCount = 0;
+        for (int i = 0; i < pendingCount; i++) {
+            int cell = pending[i];
+            if (!isFree(cell) && dist[cell] != -1) {
+                int d = dist[cell];
+                dist[cell] = -1;
+                pushDependents(queue, cell, d);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int d = (int) queue.peekPriority();
+            int cell = queue.poll();
+            if (dist[cell] != d || hasSupport(cell, d)) {
+                continue;
+            }
+            dist[cell] = -1;
+            if (lostCount == lost.length) {
+                lost = Arrays.copyOf(lost, lostCount * 2);
+            }
+            lost[lostCount++] = cell;
+            pushDependents(queue, cell, d);
+        }
+        // Seed the cells that lost their distance and the freed cells from their neighbors
+        for (int i = 0; i < lostCount; i++) {
+            seed(queue, lost[i]);
+        }
+        for (int i = 0; i < pendingCount; i++) {
+            int cell = pending[i];
+            if (isFree(cell)) {
+                seed(queue, cell);
+            }
+        }
+        pendingCount = 0;
+        // Incremental step: settle the seeds in increasing order of distance, lowering their neighbors
+        while (!queue.isEmpty()) {
+            int d = (int) queue.peekPriority();
+            int cell = queue.poll();
+            if (dist[cell] != d) {
+                continue;
+            }
+            int x = cell % width;
+            int y = cell / width;
+            for (int dir = Map.UP; dir <= Map.LEFT; dir++) {
+                int next = map.step(x, y, dir, cyclic);
+                if (next >= 0 && isFree(next) && (dist[next] == -1 || dist[next] > d + 1)) {
+                    dist[next] = d + 1;
+                    queue.add(next, d + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues the neighbors at distance d+1 of a cell that lost its distance d (they may have lost their support).
+     */
+    private void pushDependents(IntPriorityQueue queue, int cell, int d) {
+        int x = cell % width;
+        int y = cell / width;
+        for (int dir = Map.UP; dir <= Map.LEFT; dir++) {
+            int next = map.step(x, y, dir, cyclic);
+            if (next >= 0 && dist[next] == d + 1 && next != sourceCell) {
+                queue.add(next, d + 1);
+            }
+        }
+    }
+
+    /**
+     * @return true if a neighbor of the cell (at distance d) is still at distance d-1
+     */
+    private boolean hasSupport(int cell, int d) {
+        int x = cell % width;
+        int y = cell / width;
+        for (int dir = Map.UP; dir <= Map.LEFT; dir++) {
+            int next = map.step(x, y, dir, cyclic);
+            if (next >= 0 && dist[next] == d - 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gives a free cell the distance 1 + the smallest distance of its neighbors (if lower than its own) and queues it.
+     */
+    private void seed(IntPriorityQueue queue, int cell) {
+        int x = cell % width;
+        int y = cell / width;
+        int best = -1;
+        for (int dir = Map.UP; dir <= Map.LEFT; dir++) {
+            int next = map.step(x, y, dir, cyclic);
+            if (next >= 0 && dist[next] != -1 && (best == -1 || dist[next] + 1 < best)) {
+                best = dist[next] + 1;
+            }
+        }
+        if (best != -1 && (dist[cell] == -1 || best < dist[cell])) {
+            dist[cell] = best;
+            queue.add(cell, best);
+        }
+    }
+
+    /**
+     * @return true if the cell was passable when the distances were last updated
+     */
+    private boolean isFree(int cell) {
+        return (free[cell >>> 6] & (1L << cell)) != 0;
+    }
+}
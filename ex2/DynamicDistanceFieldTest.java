@@ -0,0 +1,96 @@
+package ex2;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.Random;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for the DynamicDistanceField class.
+ * After every change of the map, the repaired distances must equal a fresh allDistance.
+ */
+class DynamicDistanceFieldTest {
+
+    /**
+     * Test a wall that cuts the map, then a gap opened in it
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testWallAndGap() {
+        Map map = new Map(10, 10, 0);
+        DynamicDistanceField field = new DynamicDistanceField(map, new Index2D(0, 0), -1, false);
+        assertEquals(18, field.getDistance(new Index2D(9, 9)));
+        map.drawRect(new Index2D(5, 0), new Index2D(5, 9), -1);
+        assertEquals(-1, field.getDistance(new Index2D(9, 9)));
+        assertEquals(-1, field.getDistance(new Index2D(5, 5)));
+        map.setPixel(5, 9, 0);
+        assertEquals(18, field.getDistance(new Index2D(9, 9)));
+        assertEquals(27, field.getDistance(new Index2D(9, 0)));
+        assertTrue(field.toMap().equals(map.allDistance(new Index2D(0, 0), -1, false)));
+    }
+
+    /**
+     * Test blocking and freeing the source, and pixels that change without changing their passability
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testSourceChanges() {
+        Map map = new Map(6, 4, 0);
+        Pixel2D source = new Index2D(2, 2);
+        DynamicDistanceField field = new DynamicDistanceField(map, source, -1, true);
+        map.setPixel(source, -1);
+        assertEquals(-1, field.getDistance(new Index2D(0, 0)));
+        map.setPixel(source, 3);
+        map.setPixel(0, 0, 2);
+        assertTrue(field.toMap().equals(map.allDistance(source, -1, true)));
+        assertEquals(-1, field.getDistance(new Index2D(6, 0)));
+    }
+
+    /**
+     * Test random flips of pixels (a few per tick) and random rectangles against allDistance
+     */
+    @Test
+    @Timeout(value = 2, unit = SECONDS)
+    void testMatchesAllDistance() {
+        Random rand = new Random(17);
+        for (int i = 0; i < 40; i++) {
+            int w = 1 + rand.nextInt(25);
+            int h = 1 + rand.nextInt(25);
+            boolean cyclic = rand.nextBoolean();
+            Map map = new Map(w, h, 0);
+            for (int j = 0; j < w * h / 4; j++) {
+                map.setPixel(rand.nextInt(w), rand.nextInt(h), -1);
+            }
+            Pixel2D source = new Index2D(rand.nextInt(w), rand.nextInt(h));
+            DynamicDistanceField field = new DynamicDistanceField(map, source, -1, cyclic);
+            for (int tick = 0; tick < 20; tick++) {
+                int flips = 1 + rand.nextInt(4);
+                for (int f = 0; f < flips; f++) {
+                    map.setPixel(rand.nextInt(w), rand.nextInt(h), rand.nextBoolean() ? -1 : 0);
+                }
+                if (rand.nextInt(5) == 0) {
+                    map.drawRect(new Index2D(rand.nextInt(w), rand.nextInt(h)), new Index2D(rand.nextInt(w), rand.nextInt(h)), rand.nextBoolean() ? -1 : 1);
+                }
+                assertTrue(field.toMap().equals(map.allDistance(source, -1, cyclic)));
+            }
+            field.detach();
+        }
+    }
+
+    /**
+     * Test that the field follows init (new dimensions)
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testMapReset() {
+        Map map = new Map(5, 5, 0);
+        DynamicDistanceField field = new DynamicDistanceField(map, new Index2D(4, 4), -1, false);
+        map.init(3, 3, 0);
+        assertEquals(-1, field.getDistance(new Index2D(0, 0)));
+        map.init(8, 8, 0);
+        assertEquals(8, field.getDistance(new Index2D(0, 0)));
+    }
+}
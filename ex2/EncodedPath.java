@@ -0,0 +1,255 @@
+package ex2;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A compact path of consecutive pixels: the start pixel and a 2 bit direction code per step
+ * (Map.UP, DOWN, RIGHT or LEFT), 32 steps per long, with the pixel of every 32nd step kept as a checkpoint.
+ * A step costs about 3 bits instead of an Index2D object and its reference in a Pixel2D[] (over 200 bits),
+ * pixel i is found in O(1) by walking at most 31 steps from its checkpoint, and {@link #cells()} iterates
+ * the path without allocating per step. {@link #toArray()} builds the Pixel2D[] form of shortestPath.
+ * <p>
+ * Steps over a map edge wrap around (as in cyclic mode), so the path only needs the map dimensions,
+ * not the map itself.
+ */
+public class EncodedPath {
+    /** The number of steps between two checkpoints (the steps of one word). */
+    private static final int CHECKPOINT_INTERVAL = 32;
+
+    /** The dimensions of the map of the path. */
+    private final int width, height;
+    /** The number of steps (the number of pixels minus one). */
+    private final int steps;
+    /** The direction codes of the steps, 32 steps per word. */
+    private final long[] directions;
+    /** The packed index of the pixel before every 32nd step (checkpoint k is pixel 32k). */
+    private final int[] checkpoints;
+
+    /**
+     * Encodes a path of consecutive pixels.
+     * @param path the pixels of the path (as returned by shortestPath), at least one
+     * @param width the width of the map of the path
+     * @param height the height of the map of the path
+     * @throws IllegalArgumentException if the path is empty, leaves the map or has two pixels that are not neighbors
+     */
+    public EncodedPath(Pixel2D[] path, int width, int height) {
+        if (path.length == 0) {
+            throw new IllegalArgumentException("empty path");
+        }
+        this.width = width;
+        this.height = height;
+        this.steps = path.length - 1;
+        this.directions = new long[(steps + 31) >>> 5];
+        int previous = cell(path[0]);
+        for (int i = 1; i < path.length; i++) {
+            int next = cell(path[i]);
+            setDirection(directions, i - 1, direction(previous, next, width, height));
+            previous = next;
+        }
+        this.checkpoints = checkpoints(cell(path[0]));
+    }
+
+    /**
+     * Constructs a path from its direction codes.
+     * @param width the width of the map of the path
+     * @param height the height of the map of the path
+     * @param start the packed index of the first pixel
+     * @param directions the direction codes of the steps, 32 steps per word
+     * @param steps the number of steps
+     */
+    EncodedPath(int width, int height, int start, long[] directions, int steps) {
+        this.width = width;
+        this.height = height;
+        this.steps = steps;
+        this.directions = directions;
+        this.checkpoints = checkpoints(start);
+    }
+
+    /**
+     * Encodes the path to a target cell of a BFS tree.
+     * @param width the width of the map
+     * @param height the height of the map
+     * @param parent per-cell parent index in the BFS tree
+     * @param target the packed index of the last pixel
+     * @param length the number of steps from the root of the tree to the target
+     * @return the path from the root to the target
+     */
+    static EncodedPath fromParents(int width, int height, int[] parent, int target, int length) {
+        long[] directions = new long[(length + 31) >>> 5];
+        int cell = target;
+        for (int i = length - 1; i >= 0; i--) {
+            int p = parent[cell];
+            setDirection(directions, i, direction(p, cell, width, height));
+            cell = p;
+        }
+        return new EncodedPath(width, height, cell, directions, length);
+    }
+
+    /**
+     * @return the number of pixels of the path (the length of the Pixel2D[] form)
+     */
+    public int size() {
+        return steps + 1;
+    }
+
+    /**
+     * @param i the pixel number (0 to size()-1)
+     * @return the x coordinate of the pixel
+     */
+    public int getX(int i) {
+        return cellAt(i) % width;
+    }
+
+    /**
+     * @param i the pixel number (0 to size()-1)
+     * @return the y coordinate of the pixel
+     */
+    public int getY(int i) {
+        return cellAt(i) / width;
+    }
+
+    /**
+     * @param i the pixel number (0 to size()-1)
+     * @return the pixel
+     */
+    public Pixel2D get(int i) {
+        int cell = cellAt(i);
+        return new Index2D(cell % width, cell / width);
+    }
+
+    /**
+     * Returns the packed index of a pixel, walking at most 31 steps from the nearest checkpoint.
+     * @param i the pixel number (0 to size()-1)
+     * @return the packed index y*width + x of the pixel
+     * @throws IndexOutOfBoundsException if i is not a pixel number
+     */
+    public int cellAt(int i) {
+        if (i < 0 || i > steps) {
+            throw new IndexOutOfBoundsException("pixel " + i + " of a path of " + size());
+        }
+        int k = i / CHECKPOINT_INTERVAL;
+        int cell = checkpoints[k];
+        for (int s = k * CHECKPOINT_INTERVAL; s < i; s++) {
+            cell = move(cell, getDirection(s), width, height);
+        }
+        return cell;
+    }
+
+    /**
+     * @return an iterator over the packed indices y*width + x of the pixels, in order (no allocation per step)
+     */
+    public PrimitiveIterator.OfInt cells() {
+        return new PrimitiveIterator.OfInt() {
+            private int i;
+            private int cell = checkpoints[0];
+
+            @Override
+            public boolean hasNext() {
+                return i <= steps;
+            }
+
+            @Override
+            public int nextInt() {
+                if (i > steps) {
+                    throw new NoSuchElementException();
+                }
+                int current = cell;
+                if (i < steps) {
+                    cell = move(cell, getDirection(i), width, height);
+                }
+                i++;
+                return current;
+            }
+        };
+    }
+
+    /**
+     * @return a new array of the pixels of the path (the form returned by shortestPath)
+     */
+    public Pixel2D[] toArray() {
+        Pixel2D[] path = new Pixel2D[size()];
+        PrimitiveIterator.OfInt it = cells();
+        for (int i = 0; i < path.length; i++) {
+            int cell = it.nextInt();
+            path[i] = new Index2D(cell % width, cell / width);
+        }
+        return path;
+    }
+
+    /**
+     * @return the direction code of a step
+     */
+    private int getDirection(int step) {
+        return (int) (directions[step >>> 5] >>> ((step & 31) << 1)) & 3;
+    }
+
+    /**
+     * Stores the direction code of a step (the step must still be 0).
+     */
+    private static void setDirection(long[] directions, int step, int dir) {
+        directions[step >>> 5] |= (long) dir << ((step & 31) << 1);
+    }
+
+    /**
+     * @return the checkpoints of the path, starting at the given cell
+     */
+    private int[] checkpoints(int start) {
+        int[] result = new int[steps / CHECKPOINT_INTERVAL + 1];
+        int cell = start;
+        result[0] = start;
+        for (int s = 0; s < steps; s++) {
+            cell = move(cell, getDirection(s), width, height);
+            if ((s + 1) % CHECKPOINT_INTERVAL == 0) {
+                result[(s + 1) / CHECKPOINT_INTERVAL] = cell;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the neighbor of a cell in a direction (wrapping around the edges)
+     */
+    private static int move(int cell, int dir, int width, int height) {
+        int x = cell % width;
+        int y = cell / width;
+        if (dir == Map.UP) {
+            y = y == height - 1 ? 0 : y + 1;
+        }
+        else if (dir == Map.DOWN) {
+            y = y == 0 ? height - 1 : y - 1;
+        }
+        else if (dir == Map.RIGHT) {
+            x = x == width - 1 ? 0 : x + 1;
+        }
+        else {
+            x = x == 0 ? width - 1 : x - 1;
+        }
+        return y * width + x;
+    }
+
+    /**
+     * @return the direction of the step from one cell to its neighbor
+     * @throws IllegalArgumentException if the cells are not neighbors
+     */
+    private static int direction(int from, int to, int width, int height) {
+        for (int dir = Map.UP; dir <= Map.LEFT; dir++) {
+            if (move(from, dir, width, height) == to) {
+                return dir;
+            }
+        }
+        throw new IllegalArgumentException("not consecutive pixels: (" + (from % width) + "," + (from / width)
+                + ") and (" + (to % width) + "," + (to / width) + ")");
+    }
+
+    /**
+     * @return the packed index of a pixel of the path
+     * @throws IllegalArgumentException if the pixel is outside the map
+     */
+    private int cell(Pixel2D p) {
+        if (p.getX() < 0 || p.getY() < 0 || p.getX() >= width || p.getY() >= height) {
+            throw new IllegalArgumentException("pixel is outside the map: " + p);
+        }
+        return p.getY() * width + p.getX();
+    }
+}
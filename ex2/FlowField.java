@@ -0,0 +1,165 @@
+package ex2;
+
+/**
+ * A flow field towards one goal pixel: for every pixel, the first step of a shortest path to the goal.
+ * It is computed by a single reverse BFS from the goal (with the rules of allDistance), so routing any number
+ * of agents to the same goal costs one search, and every agent's next step is an O(1) lookup.
+ * <p>
+ * The field is compact: a 2 bit direction code per pixel (Map.UP, DOWN, RIGHT or LEFT) and a bitset of the
+ * pixels that can reach the goal, about 3 bits per pixel in total. The field describes the map as it was when
+ * it was built: using it after the map changed throws an IllegalStateException.
+ */
+public class FlowField {
+    /** The map the field was computed for. */
+    private final Map map;
+    /** If true, the map edges wrap around. */
+    private final boolean cyclic;
+    /** The modification count of the map when the field was computed. */
+    private final int version;
+    /** The packed index of the goal, or -1 if the goal is outside the map or an obstacle. */
+    private final int goal;
+    /** The direction code of every cell, 32 cells per word. */
+    private final long[] directions;
+    /** The cells that can reach the goal. */
+    private final long[] reachable;
+
+    /**
+     * Computes the flow field towards a goal pixel.
+     * @param map the map
+     * @param goal the goal pixel (if it is outside the map or an obstacle, no pixel can reach it)
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around)
+     */
+    public FlowField(Map map, Pixel2D goal, int obsColor, boolean cyclic) {
+        this.map = map;
+        this.cyclic = cyclic;
+        this.version = map.version();
+        int width = map.getWidth();
+        int n = width * map.getHeight();
+        long[] free = map.passabilityMask(obsColor).words();
+        directions = new long[(n + 31) >>> 5];
+        reachable = new long[free.length];
+        int g = map.isInside(goal) ? goal.getY() * width + goal.getX() : -1;
+        if (g < 0 || (free[g >>> 6] & (1L << g)) == 0) {
+            this.goal = -1;
+            return;
+        }
+        this.goal = g;
+        int[] queue = new int[n];
+        queue[0] = g;
+        reachable[g >>> 6] |= 1L << g;
+        int head = 0, tail = 1;
+        while (head < tail) {
+            int current = queue[head++];
+            int x = current % width;
+            int y = current / width;
+            for (int dir = Map.UP; dir <= Map.LEFT; dir++) {
+                int next = map.step(x, y, dir, cyclic);
+                if (next < 0 || (free[next >>> 6] & (1L << next)) == 0 || (reachable[next >>> 6] & (1L << next)) != 0) {
+                    continue;
+                }
+                reachable[next >>> 6] |= 1L << next;
+                // The way back from next to current is the opposite direction (UP/DOWN and RIGHT/LEFT differ in the low bit)
+                directions[next >>> 5] |= (long) (dir ^ 1) << ((next & 31) << 1);
+                queue[tail++] = next;
+            }
+        }
+    }
+
+    /**
+     * @return the goal pixel, or null if no pixel can reach it (it is outside the map or an obstacle)
+     */
+    public Pixel2D getGoal() {
+        return goal < 0 ? null : pixel(goal);
+    }
+
+    /**
+     * @param p a pixel
+     * @return true if there is a path from the pixel to the goal
+     * @throws IllegalStateException if the map changed since the field was computed
+     */
+    public boolean isReachable(Pixel2D p) {
+        checkVersion();
+        return map.isInside(p) && isReachable(cell(p));
+    }
+
+    /**
+     * Returns the next step of a shortest path from a pixel to the goal, in O(1).
+     * @param p the current pixel
+     * @return the neighbor to step to, the goal itself if p is the goal, or null if p cannot reach the goal
+     * @throws IllegalStateException if the map changed since the field was computed
+     */
+    public Pixel2D nextStep(Pixel2D p) {
+        checkVersion();
+        if (!map.isInside(p) || !isReachable(cell(p))) {
+            return null;
+        }
+        int cell = cell(p);
+        return pixel(cell == goal ? goal : next(cell));
+    }
+
+    /**
+     * Reads off a shortest path from a pixel to the goal by following the field, without any search.
+     * @param p the starting pixel
+     * @return an array of consecutive pixels from p to the goal (as long as shortestPath), or null if p cannot reach the goal
+     * @throws IllegalStateException if the map changed since the field was computed
+     */
+    public Pixel2D[] pathFrom(Pixel2D p) {
+        checkVersion();
+        if (!map.isInside(p) || !isReachable(cell(p))) {
+            return null;
+        }
+        int length = 1;
+        for (int cell = cell(p); cell != goal; cell = next(cell)) {
+            length++;
+        }
+        Pixel2D[] path = new Pixel2D[length];
+        int cell = cell(p);
+        for (int i = 0; i < length; i++) {
+            path[i] = pixel(cell);
+            if (cell != goal) {
+                cell = next(cell);
+            }
+        }
+        return path;
+    }
+
+    /**
+     * @return the neighbor the flow points to from a reachable cell other than the goal
+     */
+    private int next(int cell) {
+        int dir = (int) (directions[cell >>> 5] >>> ((cell & 31) << 1)) & 3;
+        return map.step(cell, dir, cyclic);
+    }
+
+    /**
+     * @return true if the cell can reach the goal
+     */
+    private boolean isReachable(int cell) {
+        return (reachable[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * @return the packed index of a pixel inside the map
+     */
+    private int cell(Pixel2D p) {
+        return p.getY() * map.getWidth() + p.getX();
+    }
+
+    /**
+     * @return the pixel of a packed index
+     */
+    private Pixel2D pixel(int cell) {
+        int width = map.getWidth();
+        return new Index2D(cell % width, cell / width);
+    }
+
+    /**
+     * @throws IllegalStateException if the map changed since the field was computed
+     */
+    private void checkVersion() {
+        if (map.version() != version) {
+            throw new IllegalStateException("the map changed since the flow field was computed");
+        }
+    }
+}
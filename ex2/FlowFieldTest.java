@@ -0,0 +1,104 @@
+package ex2;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.Random;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for the FlowField class.
+ * Every step must lower the allDistance distance to the goal by one, so the paths read off the field are shortest paths.
+ */
+class FlowFieldTest {
+
+    /**
+     * Test the steps and the path along an open row
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testRow() {
+        Map map = new Map(10, 1, 0);
+        FlowField field = new FlowField(map, new Index2D(7, 0), -1, false);
+        assertEquals(new Index2D(7, 0), field.getGoal());
+        assertEquals(new Index2D(3, 0), field.nextStep(new Index2D(2, 0)));
+        assertEquals(new Index2D(8, 0), field.nextStep(new Index2D(9, 0)));
+        assertEquals(new Index2D(7, 0), field.nextStep(new Index2D(7, 0)));
+        Pixel2D[] path = field.pathFrom(new Index2D(4, 0));
+        assertEquals(4, path.length);
+        assertEquals(new Index2D(4, 0), path[0]);
+        assertEquals(new Index2D(7, 0), path[3]);
+        assertEquals(1, field.pathFrom(new Index2D(7, 0)).length);
+    }
+
+    /**
+     * Test that the cyclic field wraps around the edges
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testCyclic() {
+        Map map = new Map(10, 10, 0);
+        FlowField field = new FlowField(map, new Index2D(0, 0), -1, true);
+        assertEquals(new Index2D(0, 0), field.nextStep(new Index2D(9, 0)));
+        assertEquals(new Index2D(0, 0), field.nextStep(new Index2D(0, 9)));
+        assertEquals(3, field.pathFrom(new Index2D(9, 9)).length);
+    }
+
+    /**
+     * Test that following the field from every pixel of random maps gives shortest paths, in both modes
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testMatchesAllDistance() {
+        Random rand = new Random(22);
+        for (int i = 0; i < 40; i++) {
+            int w = 1 + rand.nextInt(30);
+            int h = 1 + rand.nextInt(30);
+            boolean cyclic = rand.nextBoolean();
+            Map map = new Map(w, h, 0);
+            for (int j = 0; j < w * h / 3; j++) {
+                map.setPixel(rand.nextInt(w), rand.nextInt(h), -1);
+            }
+            Pixel2D goal = new Index2D(rand.nextInt(w), rand.nextInt(h));
+            map.setPixel(goal, 0);
+            Map2D dist = map.allDistance(goal, -1, cyclic);
+            FlowField field = new FlowField(map, goal, -1, cyclic);
+            for (int x = 0; x < w; x++) {
+                for (int y = 0; y < h; y++) {
+                    Pixel2D p = new Index2D(x, y);
+                    int d = dist.getPixel(p);
+                    assertEquals(d >= 0, field.isReachable(p));
+                    if (d < 0) {
+                        assertNull(field.nextStep(p));
+                        assertNull(field.pathFrom(p));
+                    }
+                    else if (d > 0) {
+                        assertEquals(d - 1, dist.getPixel(field.nextStep(p)));
+                        assertEquals(d + 1, field.pathFrom(p).length);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Test an unreachable goal, pixels outside the map and the staleness check
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testEdgeCases() {
+        Map map = new Map(5, 5, 0);
+        map.setPixel(2, 2, -1);
+        FlowField blocked = new FlowField(map, new Index2D(2, 2), -1, false);
+        assertNull(blocked.getGoal());
+        assertFalse(blocked.isReachable(new Index2D(0, 0)));
+        FlowField field = new FlowField(map, new Index2D(0, 0), -1, false);
+        assertFalse(field.isReachable(new Index2D(2, 2)));
+        assertNull(field.nextStep(new Index2D(-1, 0)));
+        assertNull(field.pathFrom(new Index2D(5, 0)));
+        map.setPixel(1, 1, -1);
+        assertThrows(IllegalStateException.class, () -> field.nextStep(new Index2D(4, 4)));
+    }
+}
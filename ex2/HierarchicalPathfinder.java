@@ -0,0 +1,642 @@
+package ex2;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Hierarchical path-finding (HPA*) over a Map, for maps that are too large for a full search per query.
+ * Based on: Botea, Mueller, Schaeffer - "Near Optimal Hierarchical Path-Finding" (2004).
+ * <p>
+ * The map is partitioned into square clusters. Along every border between two neighboring clusters,
+ * each maximal run of passable cell pairs gets one transition (two for long runs, one at each end).
+ * The transition cells are the entrances of their clusters; inside a cluster the distances between
+ * all its entrances are precomputed by a BFS restricted to the cluster. A query connects the start and
+ * the target to the entrances of their clusters, runs A* on this small abstract graph and then refines
+ * every abstract edge back into pixels with a local BFS inside one cluster.
+ * In cyclic mode the wrap-around borders (last column to first column, last row to first row) are
+ * ordinary cluster borders, so wrap edges become inter-cluster links.
+ * <p>
+ * The paths are valid and are found whenever one exists, but are near-optimal rather than always
+ * shortest (typically within a few percent of the BFS length).
+ * The pathfinder registers itself as a {@link MapListener} of the map: clusters touched by
+ * setPixel, the draw methods or fill are marked dirty and rebuilt (with their neighbors' tables)
+ * before the next query; init and rescale rebuild everything. Call {@link #detach()} when done.
+ */
+public class HierarchicalPathfinder implements MapListener {
+    /** Transitions of a border run at least this long are placed at both ends of the run. */
+    private static final int LONG_RUN = 6;
+    /** The abstract node id of the start of a query. */
+    private static final int START = 0;
+    /** The abstract node id of the target of a query. */
+    private static final int TARGET = 1;
+
+    /** The map being searched. */
+    private final Map map;
+    /** The side length of a cluster. */
+    private final int clusterSize;
+    /** The color value representing obstacles. */
+    private final int obsColor;
+    /** If true, the map edges wrap around. */
+    private final boolean cyclic;
+
+    /** The dimensions of the map and of the cluster grid. */
+    private int width, height, clustersX, clustersY;
+    /** Transition pairs [a0, b0, a1, b1, ...] on the border between cluster c and its right neighbor. */
+    private int[][] borderRight;
+    /** Transition pairs [a0, b0, a1, b1, ...] on the border between cluster c and its up neighbor. */
+    private int[][] borderUp;
+    /** The entrance cells of each cluster. */
+    private int[][] entrances;
+    /** The distances between the entrances of each cluster (k*k, row i holds the distances from entrance i). */
+    private int[][] intra;
+    /** The clusters touched since the last rebuild. */
+    private boolean[] dirty;
+    /** True if any cluster is dirty. */
+    private boolean anyDirty;
+
+    /** The passability mask of the map, fetched again by every build and query (the map may replace it). */
+    private PassabilityMask mask;
+    /** Scratch arrays of one cluster for the local BFS. */
+    private int[] localDist, localParent, localQueue;
+
+    /**
+     * Builds the cluster data of a map and starts tracking its changes.
+     * @param map the map to search
+     * @param clusterSize the side length of a cluster (e.g. 16 to 64)
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around)
+     * @throws IllegalArgumentException if clusterSize is smaller than 1
+     */
+    public HierarchicalPathfinder(Map map, int clusterSize, int obsColor, boolean cyclic) {
+        if (clusterSize < 1) {
+            throw new IllegalArgumentException("clusterSize must be positive: " + clusterSize);
+        }
+        this.map = map;
+        this.clusterSize = clusterSize;
+        this.obsColor = obsColor;
+        this.cyclic = cyclic;
+        build();
+        map.addListener(this);
+    }
+
+    /**
+     * Stops tracking the changes of the map (the pathfinder must not be used afterwards).
+     */
+    public void detach() {
+        map.removeListener(this);
+    }
+
+    /**
+     * Marks the clusters overlapping the changed rectangle as dirty.
+     */
+    @Override
+    public void regionChanged(Map map, int minX, int minY, int maxX, int maxY) {
+        for (int cy = minY / clusterSize; cy <= maxY / clusterSize; cy++) {
+            for (int cx = minX / clusterSize; cx <= maxX / clusterSize; cx++) {
+                dirty[cy * clustersX + cx] = true;
+            }
+        }
+        anyDirty = true;
+    }
+
+    /**
+     * Rebuilds all the cluster data (the dimensions of the map may have changed).
+     */
+    @Override
+    public void mapReset(Map map) {
+        build();
+    }
+
+    /**
+     * Finds a (near-shortest) path between two pixels.
+     * @param p1 the starting pixel
+     * @param p2 the destination pixel
+     * @return an array of consecutive pixels from p1 to p2, or null if no path exists
+     */
+    public Pixel2D[] shortestPath(Pixel2D p1, Pixel2D p2) {
+        // Only invalid end points are rejected up front: a global connectivity check would rebuild the
+        // component index of the whole map after every edit, and an empty abstract search already means no path
+        if (!map.isInside(p1) || !map.isInside(p2) || map.getPixel(p1) == obsColor || map.getPixel(p2) == obsColor) {
+            return null;
+        }
+        mask = map.passabilityMask(obsColor);
+        rebuildDirty();
+        int start = p1.getY() * width + p1.getX();
+        int target = p2.getY() * width + p2.getX();
+        if (start == target) {
+            return new Pixel2D[]{new Index2D(p1)};
+        }
+        int startCluster = clusterOf(start);
+        int targetCluster = clusterOf(target);
+        int[] startDist = entranceDistances(startCluster, start);
+        int[] targetDist = entranceDistances(targetCluster, target);
+        int direct = -1;
+        if (startCluster == targetCluster) {
+            localBfs(startCluster, start);
+            direct = localDist[localIndex(startCluster, target)];
+        }
+
+        // A* over the abstract graph: node 0 is the start, node 1 the target, the others are entrances
+        HashMap<Integer, Integer> ids = new HashMap<>();
+        int[] cell = new int[64];
+        int[] g = new int[64];
+        int[] parent = new int[64];
+        boolean[] inter = new boolean[64];
+        boolean[] closed = new boolean[64];
+        int nodes = 2;
+        cell[START] = start;
+        cell[TARGET] = target;
+        Arrays.fill(g, -1);
+        g[START] = 0;
+        IntPriorityQueue open = new IntPriorityQueue(64);
+        open.add(START, Map.aStarPriority(0, map.manhattan(start, target, cyclic)));
+
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            if (closed[current]) {
+                continue;
+            }
+            if (current == TARGET) {
+                break;
+            }
+            closed[current] = true;
+            // Collect the edges of the current node as (cell, cost, inter) triples
+            int[] edges;
+            int count;
+            if (current == START) {
+                int[] list = entrances[startCluster];
+                edges = new int[3 * (list.length + 1)];
+                count = 0;
+                for (int j = 0; j < list.length; j++) {
+                    if (startDist[j] >= 0) {
+                        edges[count++] = list[j];
+                        edges[count++] = startDist[j];
+                        edges[count++] = 0;
+                    }
+                }
+                if (direct >= 0) {
+                    edges[count++] = -1;
+                    edges[count++] = direct;
+                    edges[count++] = 0;
+                }
+            }
+            else {
+                int c = clusterOf(cell[current]);
+                int slot = slotOf(c, cell[current]);
+                int[] list = entrances[c];
+                int k = list.length;
+                edges = new int[3 * (k + 5)];
+                count = 0;
+                for (int j = 0; j < k; j++) {
+                    int d = intra[c][slot * k + j];
+                    if (j != slot && d >= 0) {
+                        edges[count++] = list[j];
+                        edges[count++] = d;
+                        edges[count++] = 0;
+                    }
+                }
+                count = addTwins(c, cell[current], edges, count);
+                if (c == targetCluster && targetDist[slot] >= 0) {
+                    edges[count++] = -1;
+                    edges[count++] = targetDist[slot];
+                    edges[count++] = 0;
+                }
+            }
+            // Relax the edges (cell -1 stands for the target node)
+            for (int e = 0; e < count; e += 3) {
+                int next;
+                if (edges[e] == -1) {
+                    next = TARGET;
+                }
+                else {
+                    Integer id = ids.get(edges[e]);
+                    if (id == null) {
+                        id = nodes++;
+                        ids.put(edges[e], id);
+                        if (id == cell.length) {
+                            int size = cell.length * 2;
+                            cell = Arrays.copyOf(cell, size);
+                            parent = Arrays.copyOf(parent, size);
+                            inter = Arrays.copyOf(inter, size);
+                            closed = Arrays.copyOf(closed, size);
+                            g = Arrays.copyOf(g, size);
+                            Arrays.fill(g, id, size, -1);
+                        }
+                        cell[id] = edges[e];
+                    }
+                    next = id;
+                }
+                int nextG = g[current] + edges[e + 1];
+                if (!closed[next] && (g[next] == -1 || nextG < g[next])) {
+                    g[next] = nextG;
+                    parent[next] = current;
+                    inter[next] = edges[e + 2] != 0;
+                    int h = (next == TARGET) ? 0 : map.manhattan(cell[next], target, cyclic);
+                    open.add(next, Map.aStarPriority(nextG, h));
+                }
+            }
+        }
+        if (g[TARGET] == -1) {
+            return null;
+        }
+        return refine(cell, parent, inter, g[TARGET]);
+    }
+
+    ////////////////////// Private Methods ///////////////////////
+
+    /**
+     * Expands the abstract path ending at the target node into consecutive pixels.
+     * Inter-cluster edges are single steps; all other edges are refined with a local BFS in their cluster.
+     * @param cell the cell of every abstract node
+     * @param parent the parent of every abstract node
+     * @param inter true for the nodes reached through an inter-cluster edge
+     * @param length the length of the abstract path (in pixels steps)
+     * @return the path from the start to the target
+     */
+    private Pixel2D[] refine(int[] cell, int[] parent, boolean[] inter, int length) {
+        int[] path = new int[length + 1];
+        int i = length;
+        int node = TARGET;
+        while (node != START) {
+            int from = cell[parent[node]];
+            int to = cell[node];
+            if (inter[node]) {
+                path[i--] = to;
+            }
+            else {
+                // Both ends of every other edge (start, intra-cluster and target edges) are in one cluster
+                int c = clusterOf(from);
+                localBfs(c, from);
+                int local = localIndex(c, to);
+                while (localParent[local] != -1) {
+                    path[i--] = cellOf(c, local);
+                    local = localParent[local];
+                }
+            }
+            node = parent[node];
+        }
+        path[0] = cell[START];
+        Pixel2D[] ans = new Pixel2D[path.length];
+        for (int j = 0; j < path.length; j++) {
+            ans[j] = new Index2D(path[j] % width, path[j] / width);
+        }
+        return ans;
+    }
+
+    /**
+     * Adds the inter-cluster edges of an entrance (one per transition it is part of) as (cell, 1, inter) triples.
+     * @param c the cluster of the entrance
+     * @param entrance the entrance cell
+     * @param edges the edge triples
+     * @param count the number of used slots in edges
+     * @return the new number of used slots in edges
+     */
+    private int addTwins(int c, int entrance, int[] edges, int count) {
+        int[][] borders = {borderRight[c], borderUp[c], borderRightOf(neighbor(c, Map.LEFT)), borderUpOf(neighbor(c, Map.DOWN))};
+        for (int b = 0; b < borders.length; b++) {
+            int[] pairs = borders[b];
+            if (pairs == null) {
+                continue;
+            }
+            // In the first two borders c owns the "a" side, in the last two the "b" side
+            int own = (b < 2) ? 0 : 1;
+            for (int p = 0; p < pairs.length; p += 2) {
+                if (pairs[p + own] == entrance) {
+                    edges[count++] = pairs[p + 1 - own];
+                    edges[count++] = 1;
+                    edges[count++] = 1;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Rebuilds all the cluster data from scratch.
+     */
+    private void build() {
+        mask = map.passabilityMask(obsColor);
+        width = map.getWidth();
+        height = map.getHeight();
+        clustersX = (width + clusterSize - 1) / clusterSize;
+        clustersY = (height + clusterSize - 1) / clusterSize;
+        int clusters = clustersX * clustersY;
+        borderRight = new int[clusters][];
+        borderUp = new int[clusters][];
+        entrances = new int[clusters][];
+        intra = new int[clusters][];
+        dirty = new boolean[clusters];
+        anyDirty = false;
+        int local = Math.min(clusterSize, width) * Math.min(clusterSize, height);
+        localDist = new int[local];
+        localParent = new int[local];
+        localQueue = new int[local];
+        for (int c = 0; c < clusters; c++) {
+            borderRight[c] = buildBorder(c, Map.RIGHT);
+            borderUp[c] = buildBorder(c, Map.UP);
+        }
+        for (int c = 0; c < clusters; c++) {
+            buildIntra(c);
+        }
+    }
+
+    /**
+     * Rebuilds the borders of the dirty clusters and the entrance tables of the dirty clusters and their neighbors.
+     */
+    private void rebuildDirty() {
+        if (!anyDirty) {
+            return;
+        }
+        boolean[] refresh = new boolean[dirty.length];
+        for (int c = 0; c < dirty.length; c++) {
+            if (!dirty[c]) {
+                continue;
+            }
+            borderRight[c] = buildBorder(c, Map.RIGHT);
+            borderUp[c] = buildBorder(c, Map.UP);
+            refresh[c] = true;
+            int left = neighbor(c, Map.LEFT);
+            if (left >= 0) {
+                borderRight[left] = buildBorder(left, Map.RIGHT);
+                refresh[left] = true;
+            }
+            int down = neighbor(c, Map.DOWN);
+            if (down >= 0) {
+                borderUp[down] = buildBorder(down, Map.UP);
+                refresh[down] = true;
+            }
+            int right = neighbor(c, Map.RIGHT);
+            if (right >= 0) {
+                refresh[right] = true;
+            }
+            int up = neighbor(c, Map.UP);
+            if (up >= 0) {
+                refresh[up] = true;
+            }
+            dirty[c] = false;
+        }
+        for (int c = 0; c < refresh.length; c++) {
+            if (refresh[c]) {
+                buildIntra(c);
+            }
+        }
+        anyDirty = false;
+    }
+
+    /**
+     * Finds the transitions on the right (or up) border of a cluster.
+     * Every maximal run of pairs (a, b) - a on the border of the cluster, b its neighbor across the
+     * border, both passable - gets a transition in its middle, or one at each end if it is long.
+     * @param c the cluster
+     * @param dir RIGHT or UP
+     * @return the transition pairs [a0, b0, a1, b1, ...], or null if the cluster has no neighbor there
+     */
+    private int[] buildBorder(int c, int dir) {
+        if (neighbor(c, dir) < 0) {
+            return null;
+        }
+        int x0 = (c % clustersX) * clusterSize;
+        int y0 = (c / clustersX) * clusterSize;
+        int x1 = Math.min(x0 + clusterSize, width) - 1;
+        int y1 = Math.min(y0 + clusterSize, height) - 1;
+        int length = (dir == Map.RIGHT) ? y1 - y0 + 1 : x1 - x0 + 1;
+        int[] pairs = new int[4 * length];
+        int count = 0;
+        int runStart = -1;
+        for (int t = 0; t <= length; t++) {
+            boolean open = false;
+            if (t < length) {
+                int a = (dir == Map.RIGHT) ? (y0 + t) * width + x1 : y1 * width + x0 + t;
+                int b = map.step(a, dir, cyclic);
+                open = passable(a) && passable(b);
+            }
+            if (open && runStart < 0) {
+                runStart = t;
+            }
+            else if (!open && runStart >= 0) {
+                // The run [runStart, t) just ended
+                int runEnd = t - 1;
+                if (runEnd - runStart + 1 >= LONG_RUN) {
+                    count = addPair(pairs, count, c, dir, runStart);
+                    count = addPair(pairs, count, c, dir, runEnd);
+                }
+                else {
+                    count = addPair(pairs, count, c, dir, (runStart + runEnd) / 2);
+                }
+                runStart = -1;
+            }
+        }
+        return Arrays.copyOf(pairs, count);
+    }
+
+    /**
+     * Adds the transition at position t of a border.
+     * @return the new number of used slots in pairs
+     */
+    private int addPair(int[] pairs, int count, int c, int dir, int t) {
+        int x0 = (c % clustersX) * clusterSize;
+        int y0 = (c / clustersX) * clusterSize;
+        int x1 = Math.min(x0 + clusterSize, width) - 1;
+        int y1 = Math.min(y0 + clusterSize, height) - 1;
+        int a = (dir == Map.RIGHT) ? (y0 + t) * width + x1 : y1 * width + x0 + t;
+        pairs[count++] = a;
+        pairs[count++] = map.step(a, dir, cyclic);
+        return count;
+    }
+
+    /**
+     * Collects the entrances of a cluster and computes the distances between them inside the cluster.
+     * @param c the cluster
+     */
+    private void buildIntra(int c) {
+        int[] list = new int[16];
+        int k = 0;
+        int[][] borders = {borderRight[c], borderUp[c], borderRightOf(neighbor(c, Map.LEFT)), borderUpOf(neighbor(c, Map.DOWN))};
+        for (int b = 0; b < borders.length; b++) {
+            int[] pairs = borders[b];
+            if (pairs == null) {
+                continue;
+            }
+            int own = (b < 2) ? 0 : 1;
+            for (int p = own; p < pairs.length; p += 2) {
+                int entrance = pairs[p];
+                // A corner cell can be an entrance of two borders
+                boolean seen = false;
+                for (int j = 0; j < k && !seen; j++) {
+                    seen = list[j] == entrance;
+                }
+                if (!seen) {
+                    if (k == list.length) {
+                        list = Arrays.copyOf(list, k * 2);
+                    }
+                    list[k++] = entrance;
+                }
+            }
+        }
+        entrances[c] = Arrays.copyOf(list, k);
+        int[] table = new int[k * k];
+        for (int i = 0; i < k; i++) {
+            localBfs(c, list[i]);
+            for (int j = 0; j < k; j++) {
+                table[i * k + j] = localDist[localIndex(c, list[j])];
+            }
+        }
+        intra[c] = table;
+    }
+
+    /**
+     * @return the right border of a cluster, or null for no cluster (-1)
+     */
+    private int[] borderRightOf(int c) {
+        return (c < 0) ? null : borderRight[c];
+    }
+
+    /**
+     * @return the up border of a cluster, or null for no cluster (-1)
+     */
+    private int[] borderUpOf(int c) {
+        return (c < 0) ? null : borderUp[c];
+    }
+
+    /**
+     * Computes the distances (inside its cluster) from a cell to every entrance of the cluster.
+     * @param c the cluster of the cell
+     * @param source the cell
+     * @return the distance to each entrance, -1 for unreachable ones
+     */
+    private int[] entranceDistances(int c, int source) {
+        localBfs(c, source);
+        int[] list = entrances[c];
+        int[] dist = new int[list.length];
+        for (int j = 0; j < list.length; j++) {
+            dist[j] = localDist[localIndex(c, list[j])];
+        }
+        return dist;
+    }
+
+    /**
+     * Runs a BFS restricted to one cluster (no wrap-around) from a cell.
+     * The results are left in localDist and localParent (indexed by the local cell index).
+     * @param c the cluster
+     * @param source the starting cell (inside the cluster, passable)
+     */
+    private void localBfs(int c, int source) {
+        int x0 = (c % clustersX) * clusterSize;
+        int y0 = (c / clustersX) * clusterSize;
+        int w = Math.min(x0 + clusterSize, width) - x0;
+        int h = Math.min(y0 + clusterSize, height) - y0;
+        Arrays.fill(localDist, 0, w * h, -1);
+        int s = localIndex(c, source);
+        localDist[s] = 0;
+        localParent[s] = -1;
+        localQueue[0] = s;
+        int head = 0, tail = 1;
+        while (head < tail) {
+            int current = localQueue[head++];
+            int lx = current % w;
+            int ly = current / w;
+            for (int dir = Map.UP; dir <= Map.LEFT; dir++) {
+                int nx = lx, ny = ly;
+                if (dir == Map.UP) {
+                    ny++;
+                }
+                else if (dir == Map.DOWN) {
+                    ny--;
+                }
+                else if (dir == Map.RIGHT) {
+                    nx++;
+                }
+                else {
+                    nx--;
+                }
+                if (nx < 0 || ny < 0 || nx >= w || ny >= h) {
+                    continue;
+                }
+                int next = ny * w + nx;
+                if (localDist[next] == -1 && passable((y0 + ny) * width + x0 + nx)) {
+                    localDist[next] = localDist[current] + 1;
+                    localParent[next] = current;
+                    localQueue[tail++] = next;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the local index (inside its cluster) of a map cell
+     */
+    private int localIndex(int c, int cell) {
+        int x0 = (c % clustersX) * clusterSize;
+        int y0 = (c / clustersX) * clusterSize;
+        int w = Math.min(x0 + clusterSize, width) - x0;
+        return (cell / width - y0) * w + (cell % width - x0);
+    }
+
+    /**
+     * @return the map cell of a local index of a cluster
+     */
+    private int cellOf(int c, int local) {
+        int x0 = (c % clustersX) * clusterSize;
+        int y0 = (c / clustersX) * clusterSize;
+        int w = Math.min(x0 + clusterSize, width) - x0;
+        return (y0 + local / w) * width + x0 + local % w;
+    }
+
+    /**
+     * @return the cluster that contains a cell
+     */
+    private int clusterOf(int cell) {
+        return (cell / width / clusterSize) * clustersX + (cell % width) / clusterSize;
+    }
+
+    /**
+     * @return the index of an entrance in the entrance list of its cluster
+     */
+    private int slotOf(int c, int entrance) {
+        int[] list = entrances[c];
+        for (int j = 0; j < list.length; j++) {
+            if (list[j] == entrance) {
+                return j;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the neighboring cluster in a direction (wrapping around in cyclic mode).
+     * @param c the cluster
+     * @param dir one of UP, DOWN, RIGHT, LEFT
+     * @return the neighbor cluster, or -1 if there is none
+     */
+    private int neighbor(int c, int dir) {
+        int cx = c % clustersX;
+        int cy = c / clustersX;
+        if (dir == Map.RIGHT) {
+            cx++;
+        }
+        else if (dir == Map.LEFT) {
+            cx--;
+        }
+        else if (dir == Map.UP) {
+            cy++;
+        }
+        else {
+            cy--;
+        }
+        if (cx < 0 || cy < 0 || cx >= clustersX || cy >= clustersY) {
+            if (!cyclic) {
+                return -1;
+            }
+            cx = (cx + clustersX) % clustersX;
+            cy = (cy + clustersY) % clustersY;
+        }
+        return cy * clustersX + cx;
+    }
+
+    /**
+     * @return true if the cell is inside the map and is not an obstacle
+     */
+    private boolean passable(int cell) {
+        return cell >= 0 && mask.passable(cell);
+    }
+}
@@ -0,0 +1,135 @@
+package ex2;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.Random;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for the HierarchicalPathfinder class (HPA*).
+ * The paths are near-optimal, so the tests check that they are valid (consecutive, obstacle free),
+ * that they exist exactly when a BFS path exists, and that they follow the changes of the map.
+ */
+class HierarchicalPathfinderTest {
+
+    /**
+     * Test a path across several clusters of an open map (near the shortest length of 38 pixels)
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testOpenMap() {
+        Map map = new Map(40, 40, 0);
+        HierarchicalPathfinder finder = new HierarchicalPathfinder(map, 8, -1, false);
+        Pixel2D[] path = finder.shortestPath(new Index2D(1, 5), new Index2D(38, 5));
+        MapTest.assertValidPath(map, path, new Index2D(1, 5), new Index2D(38, 5), -1, false);
+        assertTrue(path.length >= 38 && path.length < 38 * 1.25);
+    }
+
+    /**
+     * Test start and target in the same cluster, and the same pixel
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testSameCluster() {
+        Map map = new Map(20, 20, 0);
+        HierarchicalPathfinder finder = new HierarchicalPathfinder(map, 10, -1, false);
+        Pixel2D[] path = finder.shortestPath(new Index2D(1, 1), new Index2D(3, 4));
+        MapTest.assertValidPath(map, path, new Index2D(1, 1), new Index2D(3, 4), -1, false);
+        assertEquals(6, path.length);
+        assertEquals(1, finder.shortestPath(new Index2D(2, 2), new Index2D(2, 2)).length);
+    }
+
+    /**
+     * Test that the cluster data follows drawRect and setPixel (walls added and opened)
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testMapChanges() {
+        Map map = new Map(30, 30, 0);
+        HierarchicalPathfinder finder = new HierarchicalPathfinder(map, 6, 1, false);
+        Pixel2D a = new Index2D(2, 2);
+        Pixel2D b = new Index2D(27, 2);
+        assertNotNull(finder.shortestPath(a, b));
+        map.drawRect(new Index2D(15, 0), new Index2D(15, 29), 1);
+        assertNull(finder.shortestPath(a, b));
+        map.setPixel(15, 20, 0);
+        Pixel2D[] path = finder.shortestPath(a, b);
+        MapTest.assertValidPath(map, path, a, b, 1, false);
+        assertTrue(path.length >= 25 + 2 * 18 + 1);
+    }
+
+    /**
+     * Test that queries after an edit find that there is no path without building the component index of the map
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testNoGlobalConnectivityCheck() {
+        Map map = new Map(30, 30, 0);
+        HierarchicalPathfinder finder = new HierarchicalPathfinder(map, 6, 1, false);
+        map.drawRect(new Index2D(15, 0), new Index2D(15, 29), 1);
+        assertNull(finder.shortestPath(new Index2D(2, 2), new Index2D(27, 2)));
+        assertNull(finder.shortestPath(new Index2D(2, 2), new Index2D(15, 2)));
+        assertNull(finder.shortestPath(new Index2D(-1, 2), new Index2D(3, 2)));
+        assertNull(map.currentComponentIndex(1, false));
+        MapTest.assertValidPath(map, finder.shortestPath(new Index2D(2, 2), new Index2D(14, 29)), new Index2D(2, 2), new Index2D(14, 29), 1, false);
+    }
+
+    /**
+     * Test that the wrap-around borders are used in cyclic mode
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testCyclic() {
+        Map map = new Map(24, 24, 0);
+        HierarchicalPathfinder finder = new HierarchicalPathfinder(map, 8, -1, true);
+        Pixel2D[] path = finder.shortestPath(new Index2D(0, 0), new Index2D(23, 23));
+        MapTest.assertValidPath(map, path, new Index2D(0, 0), new Index2D(23, 23), -1, true);
+        assertEquals(3, path.length);
+    }
+
+    /**
+     * Test on random maps with random changes: a path exists iff a BFS path exists
+     */
+    @Test
+    @Timeout(value = 2, unit = SECONDS)
+    void testMatchesBfsReachability() {
+        Random rand = new Random(8);
+        for (int i = 0; i < 100; i++) {
+            int w = 1 + rand.nextInt(30);
+            int h = 1 + rand.nextInt(30);
+            boolean cyclic = rand.nextBoolean();
+            Map map = new Map(w, h, 0);
+            for (int j = 0; j < w * h / 4; j++) {
+                map.setPixel(rand.nextInt(w), rand.nextInt(h), -1);
+            }
+            HierarchicalPathfinder finder = new HierarchicalPathfinder(map, 1 + rand.nextInt(8), -1, cyclic);
+            for (int q = 0; q < 5; q++) {
+                map.drawRect(new Index2D(rand.nextInt(w), rand.nextInt(h)), new Index2D(rand.nextInt(w), rand.nextInt(h)), rand.nextBoolean() ? -1 : 0);
+                Pixel2D p1 = new Index2D(rand.nextInt(w), rand.nextInt(h));
+                Pixel2D p2 = new Index2D(rand.nextInt(w), rand.nextInt(h));
+                Pixel2D[] bfs = map.shortestPath(p1, p2, -1, cyclic);
+                Pixel2D[] path = finder.shortestPath(p1, p2);
+                if (bfs == null) {
+                    assertNull(path);
+                }
+                else {
+                    MapTest.assertValidPath(map, path, p1, p2, -1, cyclic);
+                    assertTrue(path.length >= bfs.length);
+                }
+            }
+            finder.detach();
+        }
+    }
+
+    /**
+     * Test that an illegal cluster size is rejected
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testIllegalClusterSize() {
+        assertThrows(IllegalArgumentException.class, () -> new HierarchicalPathfinder(new Map(5), 0, -1, false));
+    }
+}
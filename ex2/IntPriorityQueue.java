@@ -0,0 +1,120 @@
+package ex2;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of int values ordered by long priorities, stored in two parallel primitive arrays.
+ * It is the open list of the priority-driven searches over a Map (A*, Jump Point Search, ...):
+ * cell indices are pushed without boxing and no object is allocated per entry.
+ * There is no decrease-key operation - a search pushes a cell again with its better priority
+ * and skips the stale entry when it is polled later.
+ */
+class IntPriorityQueue {
+    /** The priorities of the heap entries (heap ordered). */
+    private long[] priorities;
+    /** The values of the heap entries, values[i] belongs to priorities[i]. */
+    private int[] values;
+    /** The number of entries in the heap. */
+    private int size;
+
+    /**
+     * Constructs an empty queue.
+     * @param capacity the initial capacity (the queue grows when needed)
+     */
+    IntPriorityQueue(int capacity) {
+        capacity = Math.max(capacity, 16);
+        priorities = new long[capacity];
+        values = new int[capacity];
+    }
+
+    /**
+     * @return true if the queue has no entries
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the number of entries in the queue
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Removes all the entries (the capacity is kept).
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Adds a value with the given priority.
+     * @param value the value to add
+     * @param priority the priority of the value (lower is polled first)
+     */
+    void add(int value, long priority) {
+        if (size == values.length) {
+            priorities = Arrays.copyOf(priorities, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        // Sift the new entry up from the last leaf
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (priorities[parent] <= priority) {
+                break;
+            }
+            priorities[i] = priorities[parent];
+            values[i] = values[parent];
+            i = parent;
+        }
+        priorities[i] = priority;
+        values[i] = value;
+    }
+
+    /**
+     * @return the lowest priority in the queue (the queue must not be empty)
+     */
+    long peekPriority() {
+        return priorities[0];
+    }
+
+    /**
+     * @return the value with the lowest priority, without removing it (the queue must not be empty)
+     */
+    int peek() {
+        return values[0];
+    }
+
+    /**
+     * Removes and returns the value with the lowest priority (the queue must not be empty).
+     * @return the value with the lowest priority
+     */
+    int poll() {
+        int result = values[0];
+        size--;
+        if (size > 0) {
+            // Sift the last entry down from the root
+            long priority = priorities[size];
+            int value = values[size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && priorities[child + 1] < priorities[child]) {
+                    child++;
+                }
+                if (priority <= priorities[child]) {
+                    break;
+                }
+                priorities[i] = priorities[child];
+                values[i] = values[child];
+                i = child;
+            }
+            priorities[i] = priority;
+            values[i] = value;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,172 @@
+package ex2;
+
+/**
+ * Jump Point Search (JPS) over a Map for the 4-connected movement model (up, down, right, left).
+ * Based on: https://en.wikipedia.org/wiki/Jump_point_search
+ * A* only expands "jump points": cells where a shortest path may have to turn.
+ * From a jump point the search runs in a straight line until it meets the target, an obstacle,
+ * or a cell with a forced neighbor - a passable side cell whose twin one step back is blocked.
+ * When moving vertically, every cell also probes both horizontal directions, because in the
+ * 4-connected model the turns into a row can only happen from the column.
+ * In cyclic mode the runs wrap around the map and stop after one full lap.
+ */
+class JumpPointSearch {
+    /** The map being searched. */
+    private final Map map;
+    /** The passable cells of the map. */
+    private final PassabilityMask mask;
+    /** If true, the map edges wrap around. */
+    private final boolean cyclic;
+    /** The packed index of the target cell of the current search. */
+    private int target;
+    /** The number of steps of the last successful jump. */
+    private int jumpLength;
+
+    /**
+     * Constructs a search over the given map.
+     * @param map the map to search
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around)
+     */
+    JumpPointSearch(Map map, int obsColor, boolean cyclic) {
+        this.map = map;
+        this.mask = map.passabilityMask(obsColor);
+        this.cyclic = cyclic;
+    }
+
+    /**
+     * Finds a shortest path between two passable cells.
+     * @param start the packed index of the starting cell
+     * @param target the packed index of the destination cell
+     * @return the full path (every pixel, start and target included), or null if there is none
+     */
+    Pixel2D[] find(int start, int target) {
+        this.target = target;
+        int n = map.getWidth() * map.getHeight();
+        int[] g = map.newDistanceArray();
+        int[] parent = new int[n];
+        // The direction of the jump that reached each jump point (-1 for the start)
+        byte[] direction = new byte[n];
+        boolean[] closed = new boolean[n];
+        IntPriorityQueue open = new IntPriorityQueue(64);
+        g[start] = 0;
+        parent[start] = -1;
+        direction[start] = -1;
+        open.add(start, Map.aStarPriority(0, map.manhattan(start, target, cyclic)));
+
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            if (closed[current]) {
+                continue;
+            }
+            if (current == target) {
+                return expandPath(start, g, parent, direction);
+            }
+            closed[current] = true;
+            int incoming = direction[current];
+            for (int dir = Map.UP; dir <= Map.LEFT; dir++) {
+                // Pruning: never jump straight back the way we came
+                if (incoming >= 0 && dir == (incoming ^ 1)) {
+                    continue;
+                }
+                int jumpPoint = jump(map.step(current, dir, cyclic), dir);
+                if (jumpPoint < 0 || closed[jumpPoint]) {
+                    continue;
+                }
+                int nextG = g[current] + jumpLength;
+                if (g[jumpPoint] == -1 || nextG < g[jumpPoint]) {
+                    g[jumpPoint] = nextG;
+                    parent[jumpPoint] = current;
+                    direction[jumpPoint] = (byte)dir;
+                    open.add(jumpPoint, Map.aStarPriority(nextG, map.manhattan(jumpPoint, target, cyclic)));
+                }
+            }
+        }
+        // The open list ran out: the target is not reachable
+        return null;
+    }
+
+    /**
+     * Runs in a straight line from a cell until a jump point is found.
+     * On success, jumpLength holds the number of steps from the cell before the first one.
+     * @param cell the first cell of the run (may be -1 or an obstacle)
+     * @param dir the direction of the run
+     * @return the packed index of the jump point, or -1 if the run hits an obstacle or the map edge
+     */
+    private int jump(int cell, int dir) {
+        boolean horizontal = dir >= Map.RIGHT;
+        // In cyclic mode a run must not circle the map forever
+        int limit = horizontal ? map.getWidth() : map.getHeight();
+        for (int steps = 1; steps <= limit; steps++) {
+            if (!passable(cell)) {
+                return -1;
+            }
+            if (cell == target) {
+                jumpLength = steps;
+                return cell;
+            }
+            int behind = map.step(cell, dir ^ 1, cyclic);
+            if (horizontal) {
+                if (forced(cell, behind, Map.UP) || forced(cell, behind, Map.DOWN)) {
+                    jumpLength = steps;
+                    return cell;
+                }
+            }
+            else {
+                if (forced(cell, behind, Map.RIGHT) || forced(cell, behind, Map.LEFT)
+                        || jump(map.step(cell, Map.RIGHT, cyclic), Map.RIGHT) >= 0
+                        || jump(map.step(cell, Map.LEFT, cyclic), Map.LEFT) >= 0) {
+                    jumpLength = steps;
+                    return cell;
+                }
+            }
+            cell = map.step(cell, dir, cyclic);
+        }
+        return -1;
+    }
+
+    /**
+     * Checks if a cell has a forced neighbor on the given side: the side cell is passable
+     * but the side cell of the previous cell of the run is not.
+     * @param cell the current cell of the run
+     * @param behind the previous cell of the run
+     * @param side the side direction to check
+     * @return true if the side neighbor of cell is forced
+     */
+    private boolean forced(int cell, int behind, int side) {
+        return passable(map.step(cell, side, cyclic)) && !passable(map.step(behind, side, cyclic));
+    }
+
+    /**
+     * @param cell a packed cell index, or -1 for a cell outside the map
+     * @return true if the cell is inside the map and is not an obstacle
+     */
+    private boolean passable(int cell) {
+        return cell >= 0 && mask.passable(cell);
+    }
+
+    /**
+     * Expands the chain of jump points ending at the target into the full pixel path.
+     * Each jump is a straight run, so it is walked back from the jump point in the opposite direction.
+     * @param start the packed index of the starting cell
+     * @param g the number of steps from the start of each jump point
+     * @param parent the previous jump point of each jump point
+     * @param direction the direction of the jump that reached each jump point
+     * @return the path from start to target
+     */
+    private Pixel2D[] expandPath(int start, int[] g, int[] parent, byte[] direction) {
+        int width = map.getWidth();
+        Pixel2D[] path = new Pixel2D[g[target] + 1];
+        int i = g[target];
+        int cell = target;
+        while (cell != start) {
+            int back = direction[cell] ^ 1;
+            for (int k = g[cell] - g[parent[cell]]; k > 0; k--) {
+                path[i--] = new Index2D(cell % width, cell / width);
+                cell = map.step(cell, back, cyclic);
+            }
+        }
+        path[0] = new Index2D(start % width, start / width);
+        return path;
+    }
+}
@@ -0,0 +1,234 @@
+package ex2;
+
+import java.util.Arrays;
+
+/**
+ * Landmark (ALT) preprocessing of a Map: the BFS distances of K landmark pixels to every pixel,
+ * stored as 16 bit values (a char per pixel and landmark).
+ * Based on: A. Goldberg and C. Harrelson, "Computing the Shortest Path: A* Search Meets Graph Theory", SODA 2005.
+ * <p>
+ * By the triangle inequality, for every landmark L: |d(L,b) - d(L,a)| &lt;= d(a,b) &lt;= d(a,L) + d(L,b).
+ * The largest lower bound and the smallest upper bound over the landmarks are O(K) distance estimates
+ * (exact when they meet), and the lower bound is a consistent A* heuristic that follows the real
+ * corridors of a maze instead of the straight Manhattan distance.
+ * <p>
+ * The landmarks are chosen by farthest-point selection: every new landmark is the pixel farthest from
+ * the landmarks chosen so far (pixels that no landmark reaches come first, so every component gets one).
+ * Distances of 0xFFFE or more are stored saturated (as 0xFFFE, still a valid lower bound) and 0xFFFF marks
+ * pixels that the landmark cannot reach. The data describes the map as it was when it was built:
+ * using it after the map changed throws an IllegalStateException.
+ */
+public class Landmarks {
+    /** The stored value of the pixels a landmark cannot reach. */
+    private static final char UNREACHABLE = 0xFFFF;
+    /** The largest stored distance (larger distances are stored as this value). */
+    private static final char SATURATED = 0xFFFE;
+
+    /** The map the landmarks were computed for. */
+    private final Map map;
+    /** The color value representing obstacles. */
+    private final int obsColor;
+    /** If true, the map edges wrap around. */
+    private final boolean cyclic;
+    /** The modification count of the map when the landmarks were computed. */
+    private final int version;
+    /** The packed indices of the landmarks. */
+    private final int[] landmarks;
+    /** The distances of every landmark to every cell. */
+    private final char[][] distances;
+
+    /**
+     * Chooses up to k landmarks and computes their distance fields.
+     * @param map the map
+     * @param k the number of landmarks (fewer are chosen if the map has fewer passable pixels)
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around)
+     * @throws IllegalArgumentException if k is smaller than 1
+     */
+    public Landmarks(Map map, int k, int obsColor, boolean cyclic) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        this.map = map;
+        this.obsColor = obsColor;
+        this.cyclic = cyclic;
+        this.version = map.version();
+        int n = map.getWidth() * map.getHeight();
+        PassabilityMask mask = map.passabilityMask(obsColor);
+        int[] chosen = new int[k];
+        char[][] fields = new char[k][];
+        // nearest[i] is the distance of cell i to its nearest landmark so far (-1: reached by none)
+        int[] nearest = new int[n];
+        Arrays.fill(nearest, -1);
+        int[] dist = new int[n];
+        int[] queue = new int[n];
+        int count = 0;
+        while (count < k) {
+            // Farthest point: an unreached passable cell if there is one, otherwise the farthest reached one
+            int next = -1;
+            for (int cell = 0; cell < n; cell++) {
+                if (mask.passable(cell) && (next < 0 || farther(nearest[cell], nearest[next]))) {
+                    next = cell;
+                }
+            }
+            if (next < 0 || nearest[next] == 0) {
+                break;
+            }
+            Arrays.fill(dist, -1);
+            dist[next] = 0;
+            queue[0] = next;
+            map.bfs(queue, 1, dist, null, -1, obsColor, cyclic);
+            char[] field = new char[n];
+            for (int cell = 0; cell < n; cell++) {
+                int d = dist[cell];
+                field[cell] = d < 0 ? UNREACHABLE : (char) Math.min(d, SATURATED);
+                if (d >= 0 && (nearest[cell] < 0 || d < nearest[cell])) {
+                    nearest[cell] = d;
+                }
+            }
+            chosen[count] = next;
+            fields[count] = field;
+            count++;
+        }
+        landmarks = Arrays.copyOf(chosen, count);
+        distances = Arrays.copyOf(fields, count);
+    }
+
+    /**
+     * @return the number of landmarks
+     */
+    public int size() {
+        return landmarks.length;
+    }
+
+    /**
+     * @param i the landmark number (0 to size()-1)
+     * @return the pixel of the landmark
+     */
+    public Pixel2D getLandmark(int i) {
+        int width = map.getWidth();
+        return new Index2D(landmarks[i] % width, landmarks[i] / width);
+    }
+
+    /**
+     * Computes a lower bound of the distance between two pixels in O(K), without any search.
+     * @param p1 the first pixel
+     * @param p2 the second pixel
+     * @return a lower bound of the length (in steps) of a shortest path between p1 and p2
+     * @throws IllegalStateException if the map changed since the landmarks were computed
+     */
+    public int lowerBound(Pixel2D p1, Pixel2D p2) {
+        checkVersion();
+        return lowerBound(cell(p1), targetDistances(cell(p2)));
+    }
+
+    /**
+     * Computes an upper bound of the distance between two pixels in O(K), without any search.
+     * When it equals the lower bound, it is the exact distance.
+     * @param p1 the first pixel
+     * @param p2 the second pixel
+     * @return an upper bound of the length (in steps) of a shortest path between p1 and p2,
+     *         or -1 if no landmark reaches both pixels
+     * @throws IllegalStateException if the map changed since the landmarks were computed
+     */
+    public int upperBound(Pixel2D p1, Pixel2D p2) {
+        checkVersion();
+        int a = cell(p1);
+        int b = cell(p2);
+        int best = -1;
+        for (char[] field : distances) {
+            int da = field[a];
+            int db = field[b];
+            if (da < SATURATED && db < SATURATED && (best < 0 || da + db < best)) {
+                best = da + db;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Finds the shortest path between two pixels with A*, guided by the landmark lower bounds
+     * (and the Manhattan distance, whichever is larger).
+     * @param p1 the starting pixel
+     * @param p2 the destination pixel
+     * @return an array of consecutive pixels from p1 to p2 (as long as shortestPath), or null if no path exists
+     * @throws IllegalStateException if the map changed since the landmarks were computed
+     */
+    public Pixel2D[] shortestPath(Pixel2D p1, Pixel2D p2) {
+        checkVersion();
+        if (!map.isConnected(p1, p2, obsColor, cyclic)) {
+            return null;
+        }
+        int start = cell(p1);
+        int target = cell(p2);
+        int[] targetDistances = targetDistances(target);
+        return map.aStar(start, target, obsColor, cyclic,
+                cell -> Math.max(lowerBound(cell, targetDistances), map.manhattan(cell, target, cyclic)));
+    }
+
+    /**
+     * @return the distances of every landmark to the target cell
+     */
+    private int[] targetDistances(int target) {
+        int[] result = new int[distances.length];
+        for (int i = 0; i < distances.length; i++) {
+            result[i] = distances[i][target];
+        }
+        return result;
+    }
+
+    /**
+     * The largest triangle inequality bound over the landmarks. A saturated value is a lower bound of the real
+     * distance, so it may only be the subtracted-from side of a bound.
+     * @param cell the packed index of a cell
+     * @param targetDistances the distances of every landmark to the target
+     * @return a lower bound of the distance between the cell and the target
+     */
+    private int lowerBound(int cell, int[] targetDistances) {
+        int best = 0;
+        for (int i = 0; i < distances.length; i++) {
+            int a = distances[i][cell];
+            int b = targetDistances[i];
+            if (a == UNREACHABLE || b == UNREACHABLE) {
+                continue;
+            }
+            if (a > b && b != SATURATED) {
+                best = Math.max(best, a - b);
+            }
+            else if (b > a && a != SATURATED) {
+                best = Math.max(best, b - a);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return true if a cell at nearest-landmark distance a is a better next landmark than one at distance b
+     */
+    private static boolean farther(int a, int b) {
+        if (b < 0) {
+            return false;
+        }
+        return a < 0 || a > b;
+    }
+
+    /**
+     * @return the packed index of a pixel
+     * @throws IllegalArgumentException if the pixel is outside the map
+     */
+    private int cell(Pixel2D p) {
+        if (!map.isInside(p)) {
+            throw new IllegalArgumentException("pixel is outside the map: " + p);
+        }
+        return p.getY() * map.getWidth() + p.getX();
+    }
+
+    /**
+     * @throws IllegalStateException if the map changed since the landmarks were computed
+     */
+    private void checkVersion() {
+        if (map.version() != version) {
+            throw new IllegalStateException("the map changed since the landmarks were computed");
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package ex2;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.Random;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test suite for the Landmarks class (ALT).
+ * The bounds must enclose the BFS distance and the A* paths must be as long as the BFS paths.
+ */
+class LandmarksTest {
+
+    /**
+     * Test that the landmarks of an open row are its two ends, with exact bounds
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testRow() {
+        Map map = new Map(10, 1, 0);
+        Landmarks landmarks = new Landmarks(map, 2, -1, false);
+        assertEquals(2, landmarks.size());
+        assertEquals(new Index2D(0, 0), landmarks.getLandmark(0));
+        assertEquals(new Index2D(9, 0), landmarks.getLandmark(1));
+        assertEquals(5, landmarks.lowerBound(new Index2D(2, 0), new Index2D(7, 0)));
+        assertEquals(9, landmarks.upperBound(new Index2D(2, 0), new Index2D(7, 0)));
+        assertEquals(7, landmarks.upperBound(new Index2D(0, 0), new Index2D(7, 0)));
+    }
+
+    /**
+     * Test bounds and paths on random mazes against BFS
+     */
+    @Test
+    @Timeout(value = 2, unit = SECONDS)
+    void testMatchesBfs() {
+        Random rand = new Random(19);
+        for (int i = 0; i < 20; i++) {
+            int w = 1 + rand.nextInt(40);
+            int h = 1 + rand.nextInt(40);
+            boolean cyclic = rand.nextBoolean();
+            Map map = i % 2 == 0 ? MapTest.maze(rand, w, h) : randomObstacles(rand, w, h);
+            Landmarks landmarks = new Landmarks(map, 1 + rand.nextInt(6), -1, cyclic);
+            for (int q = 0; q < 20; q++) {
+                Pixel2D p1 = new Index2D(rand.nextInt(w), rand.nextInt(h));
+                Pixel2D p2 = new Index2D(rand.nextInt(w), rand.nextInt(h));
+                Pixel2D[] bfs = map.shortestPath(p1, p2, -1, cyclic);
+                Pixel2D[] path = landmarks.shortestPath(p1, p2);
+                if (bfs == null) {
+                    assertNull(path);
+                    continue;
+                }
+                assertNotNull(path);
+                assertEquals(bfs.length, path.length);
+                assertEquals(p1, path[0]);
+                assertEquals(p2, path[path.length - 1]);
+                int d = bfs.length - 1;
+                assertTrue(landmarks.lowerBound(p1, p2) <= d);
+                int upper = landmarks.upperBound(p1, p2);
+                assertTrue(upper == -1 || upper >= d);
+            }
+        }
+    }
+
+    /**
+     * Test that several components each get a landmark, and that k is capped by the passable pixels
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testComponents() {
+        Map map = new Map(9, 3, 0);
+        map.drawRect(new Index2D(4, 0), new Index2D(4, 2), -1);
+        Landmarks landmarks = new Landmarks(map, 2, -1, false);
+        assertTrue(landmarks.getLandmark(0).getX() < 4 != landmarks.getLandmark(1).getX() < 4);
+        Map tiny = new Map(2, 1, 0);
+        assertEquals(2, new Landmarks(tiny, 5, -1, false).size());
+    }
+
+    /**
+     * Test that using stale landmarks and k below 1 are rejected
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testIllegalUse() {
+        Map map = new Map(5, 5, 0);
+        assertThrows(IllegalArgumentException.class, () -> new Landmarks(map, 0, -1, false));
+        Landmarks landmarks = new Landmarks(map, 2, -1, false);
+        map.setPixel(2, 2, -1);
+        assertThrows(IllegalStateException.class, () -> landmarks.lowerBound(new Index2D(0, 0), new Index2D(4, 4)));
+        assertThrows(IllegalStateException.class, () -> landmarks.shortestPath(new Index2D(0, 0), new Index2D(4, 4)));
+    }
+
+    /**
+     * Creates a map with random obstacles
+     */
+    private static Map randomObstacles(Random rand, int w, int h) {
+        Map map = new Map(w, h, 0);
+        for (int j = 0; j < w * h / 4; j++) {
+            map.setPixel(rand.nextInt(w), rand.nextInt(h), -1);
+        }
+        return map;
+    }
+}
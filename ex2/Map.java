@@ -1,8 +1,9 @@
 package ex2;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.function.IntUnaryOperator;
 /**
  * This class represents a 2D map (int[w][h]) as a "screen" or a raster matrix or maze over integers.
  * This is the main class needed to be implemented.
@@ -14,10 +15,35 @@ import java.util.Queue;
 public class Map implements Map2D, Serializable{
 
     /**
-     * The internal 2D matrix storing the map data.
-     * Matrix dimensions: [height][width], where height = matrix.length and width = matrix[0].length
+     * The internal storage of the map data as one contiguous row-major array.
+     * The pixel (x, y) is stored at index y*width + x, so a whole row is a continuous block.
      */
-    private int[][] matrix;
+    private int[] data;
+    /** The width of the map (number of columns), cached to avoid array length lookups. */
+    private int width;
+    /** The height of the map (number of rows), cached to avoid array length lookups. */
+    private int height;
+    /**
+     * The modification count of the map, incremented by every method that changes pixels.
+     * Derived data (such as the component indices) remembers the count it was built for.
+     */
+    private transient int modCount;
+    /** Cached component indices by (obsColor, cyclic), most recently used last. */
+    private transient LinkedHashMap<Long, ComponentIndex> components;
+    /** The maximal number of component indices kept in the cache. */
+    private static final int MAX_COMPONENT_INDICES = 4;
+    /** Cached passability masks by obsColor, most recently used last (null until a traversal needs one). */
+    private transient LinkedHashMap<Integer, PassabilityMask> masks;
+    /** The maximal number of passability masks kept in the cache. */
+    private static final int MAX_PASSABILITY_MASKS = 4;
+    /** The registered change listeners (null while there are none). */
+    private transient ArrayList<MapListener> listeners;
+    /** Cached allDistance results (null until allDistanceCached is first used). */
+    private transient DistanceCache distances;
+    /** The memory budget of the allDistance cache in bytes. */
+    private long distanceCacheBudget = DEFAULT_DISTANCE_CACHE_BUDGET;
+    /** The default memory budget of the allDistance cache (16 MB). */
+    public static final long DEFAULT_DISTANCE_CACHE_BUDGET = 16L << 20;
 	/**
 	 * Constructs a w*h 2D raster map with an init value v.
 	 * All pixels in the map will be initialized to the value v.
@@ -41,55 +67,67 @@ public class Map implements Map2D, Serializable{
 	public Map(int[][] data) {
 		init(data);
 	}
+
+	/**
+	 * Constructs a w*h map over a given row-major array (data[y*w + x]), without copying it.
+	 * Used by the algorithms that compute a result array to hand it out as a map.
+	 * @param w the width of the map (number of columns)
+	 * @param h the height of the map (number of rows)
+	 * @param data the pixels of the map (owned by the map from now on)
+	 */
+	Map(int w, int h, int[] data) {
+		width = w;
+		height = h;
+		this.data = data;
+	}
 	/**
 	 * Initializes a w*h 2D raster map with an initial value v.
-	 * Creates a new matrix of size [height][width] and fills all entries with value v.
+	 * Creates a new flat array of size width*height and fills all entries with value v.
 	 * @param w the width of the map (number of columns)
 	 * @param h the height of the map (number of rows)
 	 * @param v the initial value for all pixels
 	 */
 	@Override
 	public void init(int w, int h, int v) {
-        // Create a new matrix with dimensions [height][width]
-        matrix = new int[h][w];
-        // Iterate through all positions and set them to the initial value v
-        // Note: matrix indexing is [y][x], so y (row) is the first index
-        for (int x = 0; x < w; x++){
-            for (int y = 0; y < h; y++){
-                matrix[y][x] = v;
-            }
+        // Create a new row-major array holding h rows of w pixels each
+        width = w;
+        height = h;
+        data = new int[w * h];
+        // Set all positions to the initial value v (a new array is already 0)
+        if (v != 0) {
+            Arrays.fill(data, v);
         }
+        replaced();
 	}
 	/**
 	 * Initializes the map from a given 2D array.
-	 * Performs a deep copy of the provided array into the internal matrix.
+	 * Performs a deep copy of the provided array (indexed arr[y][x]) into the internal flat array.
 	 * @param arr the 2D array to copy from
 	 */
 	@Override
 	public void init(int[][] arr) {
-        // Create a new matrix with the same dimensions as the input array
-        matrix = new int[arr.length][arr[0].length];
-        // Copy all values from the input array to the internal matrix
-        for (int i = 0; i < arr.length; i++){
-            for (int j = 0; j < arr[0].length; j++){
-                matrix[i][j] = arr[i][j];
-            }
+        // Take the dimensions from the input array (arr[y][x])
+        height = arr.length;
+        width = arr[0].length;
+        data = new int[width * height];
+        // Copy every row of the input array into its block of the flat array
+        for (int y = 0; y < height; y++){
+            System.arraycopy(arr[y], 0, data, y * width, width);
         }
+        replaced();
 	}
 	/**
-	 * Returns a deep copy of the internal 2D matrix.
-	 * This ensures that modifications to the returned array do not affect the internal matrix.
-	 * @return a deep copy of the internal matrix
+	 * Returns a deep copy of the map data as a 2D matrix of size [height][width].
+	 * This ensures that modifications to the returned array do not affect the internal data.
+	 * @return a deep copy of the map data
 	 */
 	@Override
 	public int[][] getMap() {
         // Create a new 2D array with the same dimensions
-        int[][] ans = new int[matrix.length][matrix[0].length];
-        // Copy all values from the internal matrix to the result array
-        for (int i = 0; i < ans.length; i++){
-            for (int j = 0; j < ans[i].length; j++){
-                ans[i][j] = matrix[i][j];
-            }
+        int[][] ans = new int[height][width];
+        // Copy every row block of the flat array into its own row
+        for (int y = 0; y < height; y++){
+            System.arraycopy(data, y * width, ans[y], 0, width);
         }
 		return ans;
 	}
@@ -99,7 +137,7 @@ public class Map implements Map2D, Serializable{
 	 */
 	@Override
 	public int getWidth() {
-        return matrix[0].length;
+        return width;
     }
 	
 	/**
@@ -108,7 +146,7 @@ public class Map implements Map2D, Serializable{
 	 */
 	@Override
 	public int getHeight() {
-        return matrix.length;
+        return height;
     }
 	/**
 	 * Returns the pixel value at coordinates (x, y).
@@ -121,11 +159,11 @@ public class Map implements Map2D, Serializable{
 	public int getPixel(int x, int y) {
         // Check if coordinates are out of bounds
         // Returns -1 if x is greater than or equal to width, or y is greater than or equal to height
-        if (x < 0 || y < 0 || x >= getWidth() || y >= getHeight()) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
             return -1;
         }
-        // Return the pixel value (matrix is indexed as [y][x])
-        return matrix[y][x];
+        // Return the pixel value (row-major: row y starts at y*width)
+        return data[y * width + x];
     }
 	
 	/**
@@ -135,10 +173,7 @@ public class Map implements Map2D, Serializable{
 	 */
 	@Override
 	public int getPixel(Pixel2D p) {
-        if (p.getX() < 0 || p.getY() < 0 || p.getX() >= getWidth() || p.getY() >= getHeight()) {
-            return -1;
-        }
-        return matrix[p.getY()][p.getX()];
+        return getPixel(p.getX(), p.getY());
 	}
 	/**
 	 * Sets the pixel value at coordinates (x, y) to the specified value v.
@@ -148,10 +183,11 @@ public class Map implements Map2D, Serializable{
 	 */
 	@Override
 	public void setPixel(int x, int y, int v) {
-        if (x < 0 || y < 0 || x >= getWidth() || y >= getHeight()) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
             return;
         }
-        matrix[y][x] = v;
+        data[y * width + x] = v;
+        modified(x, y, x, y);
     }
 	
 	/**
@@ -161,10 +197,7 @@ public class Map implements Map2D, Serializable{
 	 */
 	@Override
 	public void setPixel(Pixel2D p, int v) {
-        if (p.getX() < 0 || p.getY() < 0 || p.getX() >= getWidth() || p.getY() >= getHeight()) {
-            return;
-        }
-        matrix[p.getY()][p.getX()] = v;
+        setPixel(p.getX(), p.getY(), v);
 	}
 
     /**
@@ -176,7 +209,7 @@ public class Map implements Map2D, Serializable{
     @Override
     public boolean isInside(Pixel2D p) {
         // Check if x is within [0, width) and y is within [0, height)
-        return (p.getX() >= 0 && p.getY() >= 0 && p.getX() < getWidth() && p.getY() <  getHeight());
+        return (p.getX() >= 0 && p.getY() >= 0 && p.getX() < width && p.getY() < height);
     }
 
     /**
@@ -191,7 +224,7 @@ public class Map implements Map2D, Serializable{
             return false;
         }
         // Compare both width and height
-        return p.getHeight() == getHeight() && p.getWidth() == getWidth();
+        return p.getHeight() == height && p.getWidth() == width;
     }
 
     /**
@@ -205,13 +238,23 @@ public class Map implements Map2D, Serializable{
         if (!sameDimensions(p)) {
             return;
         }
-        // Add corresponding pixel values element-wise
-        // Note: getPixel is called with (j, i) because Map2D interface uses (x, y) = (column, row)
-        for (int i = 0; i < matrix.length; i++) {
-            for (int j = 0; j < matrix[0].length; j++) {
-                matrix[i][j] += p.getPixel(j, i);
+        // Another Map shares the same layout, so its array can be added directly
+        if (p instanceof Map) {
+            int[] other = ((Map)p).data;
+            for (int i = 0; i < data.length; i++) {
+                data[i] += other[i];
+            }
+            modified(0, 0, width - 1, height - 1);
+            return;
+        }
+        // Add corresponding pixel values element-wise, walking the flat array row by row
+        int i = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                data[i++] += p.getPixel(x, y);
             }
         }
+        modified(0, 0, width - 1, height - 1);
     }
 
     /**
@@ -222,11 +265,10 @@ public class Map implements Map2D, Serializable{
     @Override
     public void mul(double scalar) {
         // Multiply each pixel value by the scalar and cast to int
-        for (int i = 0; i < matrix.length; i++) {
-            for (int j = 0; j < matrix[0].length; j++) {
-                matrix[i][j] = (int)(matrix[i][j]*scalar);
-            }
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (int)(data[i]*scalar);
         }
+        modified(0, 0, width - 1, height - 1);
     }
 
     /**
@@ -240,24 +282,31 @@ public class Map implements Map2D, Serializable{
     @Override
     public void rescale(double sx, double sy) {
         // Calculate new dimensions (cast to int truncates fractional parts)
-        int newWidth = (int)(sx * getWidth());
-        int newHeight = (int)(sy * getHeight());
-        int[][] newMatrix = new int[newHeight][newWidth];
+        int newWidth = (int)(sx * width);
+        int newHeight = (int)(sy * height);
+        int[] newData = new int[newWidth * newHeight];
 
-        // For each pixel in the new map, find the corresponding pixel in the original map
+        // Map every new x coordinate back to the original coordinate space once
+        // Math.min ensures we don't exceed original bounds
+        int[] previousX = new int[newWidth];
         for (int x = 0; x < newWidth; x++) {
-            // Map new x coordinate back to original coordinate space
-            // Math.min ensures we don't exceed original bounds
-            int previousX = Math.min((int)(x / sx), getWidth() - 1);
-            for (int y = 0; y < newHeight; y++) {
-                // Map new y coordinate back to original coordinate space
-                int previousY = Math.min((int)(y / sy), getHeight() - 1);
+            previousX[x] = Math.min((int)(x / sx), width - 1);
+        }
+        // For each pixel in the new map, find the corresponding pixel in the original map
+        for (int y = 0; y < newHeight; y++) {
+            // Map new y coordinate back to the start of the original row
+            int previousRow = Math.min((int)(y / sy), height - 1) * width;
+            int row = y * newWidth;
+            for (int x = 0; x < newWidth; x++) {
                 // Copy pixel value using nearest-neighbor interpolation
-                newMatrix[y][x] = matrix[previousY][previousX];
+                newData[row + x] = data[previousRow + previousX[x]];
             }
         }
-        // Initialize this map with the rescaled matrix
-        init(newMatrix);
+        // Replace this map with the rescaled data
+        data = newData;
+        width = newWidth;
+        height = newHeight;
+        replaced();
     }
 
     /**
@@ -275,26 +324,30 @@ public class Map implements Map2D, Serializable{
         int startX = (int)Math.max(center.getX() - rad, 0);
         int startY = (int)Math.max(center.getY() - rad, 0);
         // End coordinates: ensure we don't exceed map boundaries
-        int endX = (int)Math.min(center.getX() + rad, getWidth() - 1);
-        int endY = (int)Math.min(center.getY() + rad, getHeight() - 1);
+        int endX = (int)Math.min(center.getX() + rad, width - 1);
+        int endY = (int)Math.min(center.getY() + rad, height - 1);
         // Pre-calculate radius squared to avoid repeated multiplication in distance calculation
         double radSquared = rad * rad;
 
-        // Iterate only through the bounding box
-        for (int x = startX; x <= endX; x++) {
-            // Calculate x distance from center (squared to avoid sqrt)
-            int xDiff = x -  center.getX();
-            int xDiffSquared = xDiff * xDiff;
-            for (int y = startY; y <= endY; y++) {
-                // Calculate y distance from center
-                int yDiff = y - center.getY();
+        // Iterate only through the bounding box, row by row to follow the memory layout
+        for (int y = startY; y <= endY; y++) {
+            // Calculate y distance from center (squared to avoid sqrt)
+            int yDiff = y - center.getY();
+            int yDiffSquared = yDiff * yDiff;
+            int row = y * width;
+            for (int x = startX; x <= endX; x++) {
+                // Calculate x distance from center
+                int xDiff = x - center.getX();
                 // Check if pixel is inside circle using squared distance (faster than sqrt)
                 // If (x-cx)^2 + (y-cy)^2 < r^2, then the pixel is inside the circle
-                if (xDiffSquared + (yDiff * yDiff) < radSquared) {
-                    matrix[y][x] = color;
+                if ((xDiff * xDiff) + yDiffSquared < radSquared) {
+                    data[row + x] = color;
                 }
             }
         }
+        if (startX <= endX && startY <= endY) {
+            modified(startX, startY, endX, endY);
+        }
     }
 
     /**
@@ -302,6 +355,7 @@ public class Map implements Map2D, Serializable{
      * The algorithm uses linear interpolation to determine which pixels to color.
      * For lines where dx >= dy, iterates over x and calculates y.
      * For lines where dy > dx, iterates over y and calculates x (swaps coordinates).
+     * Parts of the line outside the map are ignored; the listeners are notified once, with the bounding box of the line.
      * @param p1 the start point of the line
      * @param p2 the end point of the line
      * @param color the color value to draw the line with
@@ -310,7 +364,7 @@ public class Map implements Map2D, Serializable{
     public void drawLine(Pixel2D p1, Pixel2D p2, int color) {
         // Special case: if both points are the same, just color that pixel
         if (p1.equals(p2)) {
-            matrix[p1.getY()][p1.getX()] = color;
+            setPixel(p1, color);
             return;
         }
 
@@ -328,10 +382,22 @@ public class Map implements Map2D, Serializable{
             }
             // Calculate the linear function y = mx + b for the line
             double[] func = getLinearFunctionFrom2Points(p1, p2);
+            // The bounding box of the pixels drawn inside the map, for a single notification
+            int minX = width, minY = height, maxX = -1, maxY = -1;
             // Iterate over x coordinates and calculate corresponding y
             for (int x = p1.getX(); x <= p2.getX(); x++) {
                 // Calculate y using the linear function and round to nearest integer
-                matrix[CalcLinearFunc(func, x)][x] = color;
+                int y = CalcLinearFunc(func, x);
+                if (x >= 0 && y >= 0 && x < width && y < height) {
+                    data[y * width + x] = color;
+                    minX = Math.min(minX, x);
+                    maxX = Math.max(maxX, x);
+                    minY = Math.min(minY, y);
+                    maxY = Math.max(maxY, y);
+                }
+            }
+            if (maxX >= 0) {
+                modified(minX, minY, maxX, maxY);
             }
         }
         // Case 2: Line is more vertical than horizontal (dy > dx)
@@ -348,10 +414,21 @@ public class Map implements Map2D, Serializable{
             Pixel2D reverseP2 = new Index2D(p2.getY(), p2.getX());
             // Calculate linear function for swapped coordinates
             double[] func = getLinearFunctionFrom2Points(reverseP1, reverseP2);
+            int minX = width, minY = height, maxX = -1, maxY = -1;
             // Iterate over y coordinates and calculate corresponding x
             for (int y = p1.getY(); y <= p2.getY(); y++) {
                 // Calculate x using the linear function (note: func works on swapped coordinates)
-                matrix[y][CalcLinearFunc(func, y)] = color;
+                int x = CalcLinearFunc(func, y);
+                if (x >= 0 && y >= 0 && x < width && y < height) {
+                    data[y * width + x] = color;
+                    minX = Math.min(minX, x);
+                    maxX = Math.max(maxX, x);
+                    minY = Math.min(minY, y);
+                    maxY = Math.max(maxY, y);
+                }
+            }
+            if (maxX >= 0) {
+                modified(minX, minY, maxX, maxY);
             }
         }
     }
@@ -359,23 +436,29 @@ public class Map implements Map2D, Serializable{
     /**
      * Draws a filled rectangle between two corner points.
      * The rectangle is defined by the minimum and maximum x and y coordinates of p1 and p2.
+     * Parts of the rectangle outside the map are ignored.
      * @param p1 one corner of the rectangle
      * @param p2 the opposite corner of the rectangle
      * @param color the color value to fill the rectangle with
      */
     @Override
     public void drawRect(Pixel2D p1, Pixel2D p2, int color) {
-        // Find the bounding box of the rectangle
-        int xMin = Math.min(p1.getX(), p2.getX());
-        int xMax = Math.max(p1.getX(), p2.getX());
-        int yMin = Math.min(p1.getY(), p2.getY());
-        int yMax = Math.max(p1.getY(), p2.getY());
+        // Find the bounding box of the rectangle, clipped to the map boundaries
+        int xMin = Math.max(Math.min(p1.getX(), p2.getX()), 0);
+        int xMax = Math.min(Math.max(p1.getX(), p2.getX()), width - 1);
+        int yMin = Math.max(Math.min(p1.getY(), p2.getY()), 0);
+        int yMax = Math.min(Math.max(p1.getY(), p2.getY()), height - 1);
+        if (xMin > xMax) {
+            return;
+        }
 
-        // Fill all pixels within the bounding box
-        for (int y =  yMin; y <= yMax; y++) {
-            for (int x =  xMin; x <= xMax; x++) {
-                matrix[y][x] = color;
-            }
+        // Each row of the rectangle is one continuous block of the flat array
+        for (int y = yMin; y <= yMax; y++) {
+            int row = y * width;
+            Arrays.fill(data, row + xMin, row + xMax + 1, color);
+        }
+        if (yMin <= yMax) {
+            modified(xMin, yMin, xMax, yMax);
         }
     }
 
@@ -391,6 +474,10 @@ public class Map implements Map2D, Serializable{
         if(ob == null) {
             return false;
         }
+        // A read-only view is compared by the map it wraps (keeps equals symmetric)
+        if (ob instanceof ReadOnlyMap) {
+            return ob.equals(this);
+        }
         // Class check - must be the same class
         if (ob.getClass() != this.getClass()) {
             return false;
@@ -400,19 +487,24 @@ public class Map implements Map2D, Serializable{
             return false;
         }
         // Element-wise comparison - all pixels must match
-        for (int i = 0; i < matrix.length; i++) {
-            for (int j = 0; j < matrix[0].length; j++) {
-                if (matrix[i][j] != ((Map)ob).matrix[i][j]) {
-                    return false;
-                }
-            }
-        }
-        return true;
+        return Arrays.equals(data, ((Map)ob).data);
+    }
+
+    /**
+     * Returns a hash code consistent with equals: it depends on the dimensions and the pixel values.
+     * @return the hash code of the map
+     */
+    @Override
+    public int hashCode() {
+        return 31 * (31 * width + height) + Arrays.hashCode(data);
     }
 	/**
 	 * Fills a connected component of pixels with a new color using flood fill algorithm.
 	 * Starting from the given pixel, all adjacent pixels with the same color are filled with the new color.
-	 * Uses a recursive flood fill algorithm: https://en.wikipedia.org/wiki/Flood_fill
+	 * Uses an iterative scanline flood fill: https://en.wikipedia.org/wiki/Flood_fill#Span_filling
+	 * Each popped seed is grown into a horizontal span (wrapping around the row in cyclic mode), the span
+	 * is written with bulk array fills, and one seed per run of original-color pixels in the rows above
+	 * and below is pushed on an explicit int stack. The call stack depth does not depend on the map size.
 	 * 
 	 * @param xy the starting pixel position
 	 * @param new_v the new color value to fill with
@@ -421,18 +513,112 @@ public class Map implements Map2D, Serializable{
 	 */
 	@Override
 	public int fill(Pixel2D xy, int new_v,  boolean cyclic) {
+        if (!isInside(xy)) {
+            return 0;
+        }
+        int originColor = data[xy.getY() * width + xy.getX()];
         // Optimization: if the new color is the same as the original color, no filling is needed
-        if (new_v == matrix[xy.getY()][xy.getX()]) {
+        if (new_v == originColor) {
             return 0;
         }
-        // Perform recursive flood fill starting from the given pixel
-        // Store the original color to identify which pixels to fill
-		return recursiveFill(xy, matrix[xy.getY()][xy.getX()], new_v, cyclic);
+        // Explicit stack of seed cells (packed indices), grown on demand
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = xy.getY() * width + xy.getX();
+        int count = 0;
+        // The bounding box of the filled pixels
+        int minX = width, minY = height, maxX = -1, maxY = -1;
+
+        while (top > 0) {
+            int seed = stack[--top];
+            // The seed may have been filled by another span since it was pushed
+            if (data[seed] != originColor) {
+                continue;
+            }
+            int y = seed / width;
+            int row = y * width;
+            // Grow the span to the right, then to the left; in cyclic mode it may wrap around the row,
+            // but it never becomes longer than the row itself
+            int left = seed - row;
+            int right = left;
+            int length = 1;
+            while (length < width) {
+                int next = right + 1;
+                if (next == width) {
+                    if (!cyclic) {
+                        break;
+                    }
+                    next = 0;
+                }
+                if (data[row + next] != originColor) {
+                    break;
+                }
+                right = next;
+                length++;
+            }
+            while (length < width) {
+                int next = left - 1;
+                if (next < 0) {
+                    if (!cyclic) {
+                        break;
+                    }
+                    next = width - 1;
+                }
+                if (data[row + next] != originColor) {
+                    break;
+                }
+                left = next;
+                length++;
+            }
+            // Fill the span with bulk writes (two blocks if it wraps around the row end)
+            if (left + length <= width) {
+                Arrays.fill(data, row + left, row + left + length, new_v);
+                minX = Math.min(minX, left);
+                maxX = Math.max(maxX, left + length - 1);
+            }
+            else {
+                Arrays.fill(data, row + left, row + width, new_v);
+                Arrays.fill(data, row, row + left + length - width, new_v);
+                minX = 0;
+                maxX = width - 1;
+            }
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+            count += length;
+
+            // Push one seed for every run of original-color pixels above and below the span
+            for (int dir = UP; dir <= DOWN; dir++) {
+                int ny = (dir == UP) ? y + 1 : y - 1;
+                if (ny < 0 || ny >= height) {
+                    if (!cyclic) {
+                        continue;
+                    }
+                    ny = (ny + height) % height;
+                }
+                int nrow = ny * width;
+                boolean inRun = false;
+                for (int k = 0, x = left; k < length; k++, x = (x + 1 == width) ? 0 : x + 1) {
+                    if (data[nrow + x] != originColor) {
+                        inRun = false;
+                    }
+                    else if (!inRun) {
+                        inRun = true;
+                        if (top == stack.length) {
+                            stack = Arrays.copyOf(stack, stack.length * 2);
+                        }
+                        stack[top++] = nrow + x;
+                    }
+                }
+            }
+        }
+        modified(minX, minY, maxX, maxY);
+		return count;
 	}
 
 	/**
 	 * Finds the shortest path between two pixels using Breadth-First Search (BFS).
 	 * The path avoids pixels with the obstacle color. Returns null if no path exists.
+	 * Runs on the shared BFS kernel and stops as soon as p2 is discovered.
 	 * Algorithm: https://en.wikipedia.org/wiki/Breadth-first_search
 	 * 
 	 * @param p1 the starting pixel
@@ -443,67 +629,230 @@ public class Map implements Map2D, Serializable{
 	 */
 	@Override
 	public Pixel2D[] shortestPath(Pixel2D p1, Pixel2D p2, int obsColor, boolean cyclic) {
-		Pixel2D[] ans = null;  // The result path
-        // Create a 2D array of nodes to track visited status and parent relationships
-        Node[][] nodeArray = new Node[matrix.length][matrix[0].length];
-        // Initialize all nodes with their corresponding pixel coordinates
-        for (int y = 0; y < matrix.length; y++) {
-            for (int x = 0; x < matrix[0].length; x++) {
-                nodeArray[y][x] = new Node(new Index2D(x, y));
-            }
+        // Both end points must be valid and in the same component, otherwise there is no path
+        if (!canConnect(p1, p2, obsColor, cyclic)) {
+            return null;
+        }
+        int start = p1.getY() * width + p1.getX();
+        int target = p2.getY() * width + p2.getX();
+        // The start is never "discovered" by the BFS, so it would not stop early for a one-pixel path
+        if (start == target) {
+            return new Pixel2D[]{new Index2D(p1)};
         }
 
-        // Mark the starting node as visited (with null parent since it's the root)
-        nodeArray[p1.getY()][p1.getX()].visit(null);
+        // Seed the BFS with the starting cell (distance 0, it is the root of the BFS tree)
+        int[] queue = new int[data.length];
+        int[] dist = newDistanceArray();
+        int[] parent = new int[data.length];
+        queue[0] = start;
+        dist[start] = 0;
+        parent[start] = -1;
+        bfs(queue, 1, dist, parent, target, obsColor, cyclic);
 
-        // Initialize the BFS queue with the starting node
-        Queue<Node> q = new LinkedList<>();
-        q.add(new Node(p1));
+        // No path found
+        if (dist[target] == -1) {
+            return null;
+        }
+        // Reconstruct the path by following parent indices backwards from the target
+        return pathTo(parent, target, dist[target]);
+	}
 
-        // BFS main loop: process nodes level by level
-        while (!q.isEmpty()) {
-            Node current = q.poll();
-            // Skip obstacle pixels
-            if (getPixel(current.current) == obsColor) {
-                continue;
-            }
-            // Check if we've reached the destination
-            if (current.current.equals(p2)) {
-                // Reconstruct the path by following parent pointers backwards
-                ArrayList<Pixel2D> path = new ArrayList<>();
-                while (current.parent != null) {
-                    // Add current node to the front of the path
-                    path.addFirst(current.current);
-                    // Move to parent node
-                    current = current.parent;
-                }
-                // Add the starting node (which has null parent)
-                path.addFirst(current.current);
-                // Convert ArrayList to array and return
-                ans = path.toArray(new Pixel2D[0]);
-                return ans;
-            }
-
-            // Get all valid neighbors of the current node
-            ArrayList<Pixel2D> neighbors = getAllNeighbors((Pixel2D)current.current, cyclic);
-            // Process each neighbor
-            for (Pixel2D neighbor : neighbors) {
-                // Only process unvisited neighbors
-                if (!nodeArray[neighbor.getY()][neighbor.getX()].visited) {
-                    // Mark neighbor as visited and set current as its parent
-                    nodeArray[neighbor.getY()][neighbor.getX()].visit(current);
-                    // Add neighbor to queue for further exploration
-                    q.add(nodeArray[neighbor.getY()][neighbor.getX()]);
+    /**
+     * Finds a shortest path between two pixels using bidirectional Breadth-First Search.
+     * Two frontiers grow level by level, one from p1 and one from p2 (always expanding the smaller one),
+     * and the search stops at the end of the first level in which they touch.
+     * Returns a path of the same length as {@link #shortestPath}, but usually expands far fewer cells
+     * when p1 and p2 are far apart on an open map (the pixels of the path may differ when there are ties).
+     *
+     * @param p1 the starting pixel
+     * @param p2 the destination pixel
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around), otherwise edges are boundaries
+     * @return an array of Pixel2D representing a shortest path from p1 to p2, or null if no path exists
+     */
+    public Pixel2D[] shortestPathBidirectional(Pixel2D p1, Pixel2D p2, int obsColor, boolean cyclic) {
+        // Both end points must be valid and in the same component, otherwise there is no path
+        if (!canConnect(p1, p2, obsColor, cyclic)) {
+            return null;
+        }
+        int start = p1.getY() * width + p1.getX();
+        int target = p2.getY() * width + p2.getX();
+        if (start == target) {
+            return new Pixel2D[]{new Index2D(p1)};
+        }
+        // mark[i] is d+1 for a cell at distance d from p1, -(d+1) for a cell at distance d from p2,
+        // and 0 for unvisited cells. Each cell belongs to one side only, so a single parent array
+        // and a single queue array are shared: the forward queue grows up from index 0 and the
+        // backward queue grows down from the last index.
+        int[] mark = new int[data.length];
+        int[] parent = new int[data.length];
+        int[] queue = new int[data.length];
+        long[] free = passabilityMask(obsColor).words();
+        queue[0] = start;
+        mark[start] = 1;
+        parent[start] = -1;
+        int forwardHead = 0, forwardTail = 1;
+        queue[data.length - 1] = target;
+        mark[target] = -1;
+        parent[target] = -1;
+        int backwardHead = data.length - 1, backwardTail = data.length - 2;
+
+        int best = -1;        // length (in steps) of the best path found so far
+        int bestForward = -1; // the forward cell of the best meeting edge
+        int bestBackward = -1;// the backward cell of the best meeting edge
+        while (forwardHead < forwardTail && backwardHead > backwardTail) {
+            boolean forward = forwardTail - forwardHead <= backwardHead - backwardTail;
+            // Expand exactly one full level of the chosen side
+            int levelEnd = forward ? forwardTail : backwardTail;
+            while (forward ? forwardHead < levelEnd : backwardHead > levelEnd) {
+                int current = forward ? queue[forwardHead++] : queue[backwardHead--];
+                int x = current % width;
+                int y = current / width;
+                int currentMark = mark[current];
+                for (int dir = UP; dir <= LEFT; dir++) {
+                    int next = step(x, y, dir, cyclic);
+                    if (next < 0 || (free[next >>> 6] & (1L << next)) == 0) {
+                        continue;
+                    }
+                    int nextMark = mark[next];
+                    if (nextMark == 0) {
+                        // Unvisited: it joins the side being expanded, one step further away
+                        mark[next] = forward ? currentMark + 1 : currentMark - 1;
+                        parent[next] = current;
+                        if (forward) {
+                            queue[forwardTail++] = next;
+                        }
+                        else {
+                            queue[backwardTail--] = next;
+                        }
+                    }
+                    else if ((nextMark > 0) != forward) {
+                        // The frontiers touch: |mark|-1 on each side plus the step between them
+                        int length = Math.abs(currentMark) + Math.abs(nextMark) - 1;
+                        if (best == -1 || length < best) {
+                            best = length;
+                            bestForward = forward ? current : next;
+                            bestBackward = forward ? next : current;
+                        }
+                    }
                 }
             }
+            if (best != -1) {
+                break;
+            }
         }
-        // No path found
-        return null;
-	}
+        // One of the frontiers ran out before they met
+        if (best == -1) {
+            return null;
+        }
+        // Forward half: follow the parents back to p1; backward half: follow the parents on to p2
+        Pixel2D[] path = new Pixel2D[best + 1];
+        int i = mark[bestForward] - 1;
+        for (int current = bestForward; current != -1; current = parent[current]) {
+            path[i--] = new Index2D(current % width, current / width);
+        }
+        i = mark[bestForward];
+        for (int current = bestBackward; current != -1; current = parent[current]) {
+            path[i++] = new Index2D(current % width, current / width);
+        }
+        return path;
+    }
+
+    /**
+     * Finds the shortest path between two pixels using A* search: https://en.wikipedia.org/wiki/A*_search_algorithm
+     * The heuristic is the Manhattan distance to p2 (the wrap-around Manhattan distance in cyclic mode),
+     * which never overestimates on a 4-connected grid, so the path has the same length as {@link #shortestPath}.
+     * Goal directed: on open maps only the cells near the straight route between p1 and p2 are expanded.
+     *
+     * @param p1 the starting pixel
+     * @param p2 the destination pixel
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around), otherwise edges are boundaries
+     * @return an array of Pixel2D representing a shortest path from p1 to p2, or null if no path exists
+     */
+    public Pixel2D[] shortestPathAStar(Pixel2D p1, Pixel2D p2, int obsColor, boolean cyclic) {
+        // Both end points must be valid and in the same component, otherwise there is no path
+        if (!canConnect(p1, p2, obsColor, cyclic)) {
+            return null;
+        }
+        int start = p1.getY() * width + p1.getX();
+        int target = p2.getY() * width + p2.getX();
+        return aStar(start, target, obsColor, cyclic, cell -> manhattan(cell, target, cyclic));
+    }
+
+    /**
+     * Finds the shortest path between two pixels using Jump Point Search (4-connected variant).
+     * Straight runs without branching decisions are skipped over ("jumped") and only their end points
+     * enter the A* open list, which removes the many symmetric equal-length paths of open areas.
+     * The result is expanded back to the full sequence of consecutive pixels and has the same length
+     * as {@link #shortestPath}. See {@link JumpPointSearch}.
+     *
+     * @param p1 the starting pixel
+     * @param p2 the destination pixel
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around), otherwise edges are boundaries
+     * @return an array of Pixel2D representing a shortest path from p1 to p2, or null if no path exists
+     */
+    public Pixel2D[] shortestPathJumpPoint(Pixel2D p1, Pixel2D p2, int obsColor, boolean cyclic) {
+        // Both end points must be valid and in the same component, otherwise there is no path
+        if (!canConnect(p1, p2, obsColor, cyclic)) {
+            return null;
+        }
+        int start = p1.getY() * width + p1.getX();
+        int target = p2.getY() * width + p2.getX();
+        return new JumpPointSearch(this, obsColor, cyclic).find(start, target);
+    }
+
+    /**
+     * Answers a batch of shortest path queries. The queries are grouped by (source, obsColor, cyclic),
+     * every group runs a single BFS and reads all its paths off the shared BFS tree, and independent
+     * groups run in parallel (see {@link BatchPathSearch}). Every path has the length of the matching
+     * {@link #shortestPath} result. The map must not be changed while the batch runs.
+     *
+     * @param queries the queries
+     * @return the paths, in the order of the queries (null where no path exists)
+     */
+    public Pixel2D[][] shortestPaths(PathQuery[] queries) {
+        return new BatchPathSearch(this, queries).run();
+    }
+
+    /**
+     * Finds a shortest path between two pixels like {@link #shortestPath}, but returns it in the compact
+     * form of {@link EncodedPath} (2 bit direction codes), read off the BFS tree without creating a pixel per step.
+     *
+     * @param p1 the starting pixel
+     * @param p2 the destination pixel
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around), otherwise edges are boundaries
+     * @return the path from p1 to p2 (with the pixels of the shortestPath result), or null if no path exists
+     */
+    public EncodedPath shortestPathEncoded(Pixel2D p1, Pixel2D p2, int obsColor, boolean cyclic) {
+        // Both end points must be valid and in the same component, otherwise there is no path
+        if (!canConnect(p1, p2, obsColor, cyclic)) {
+            return null;
+        }
+        int start = p1.getY() * width + p1.getX();
+        int target = p2.getY() * width + p2.getX();
+        if (start == target) {
+            return new EncodedPath(width, height, start, new long[0], 0);
+        }
+        int[] queue = new int[data.length];
+        int[] dist = newDistanceArray();
+        int[] parent = new int[data.length];
+        queue[0] = start;
+        dist[start] = 0;
+        parent[start] = -1;
+        bfs(queue, 1, dist, parent, target, obsColor, cyclic);
+        if (dist[target] == -1) {
+            return null;
+        }
+        return EncodedPath.fromParents(width, height, parent, target, dist[target]);
+    }
     /**
      * Computes the shortest distance from a starting pixel to all reachable pixels in the map.
      * Uses BFS to find all distances, avoiding obstacle pixels.
      * Returns a new map where each pixel contains its distance from the start (or -1 if unreachable).
+     * The BFS kernel writes the distances directly into the data array of the result map.
      * 
      * @param start the starting pixel position
      * @param obsColor the color value representing obstacles that cannot be traversed
@@ -513,94 +862,781 @@ public class Map implements Map2D, Serializable{
     @Override
     public Map2D allDistance(Pixel2D start, int obsColor, boolean cyclic) {
         // Initialize result map with -1 (unreachable) for all pixels
-        Map2D ans = new Map(getWidth(), getHeight(), -1);
+        Map ans = new Map(width, height, -1);
         // If starting position is an obstacle, return map with all -1
-        if (getPixel(start) == obsColor) {
+        if (!isInside(start) || getPixel(start) == obsColor) {
+            return ans;
+        }
+        // Set starting position distance to 0 and explore all reachable pixels
+        int s = start.getY() * width + start.getX();
+        int[] queue = new int[data.length];
+        queue[0] = s;
+        ans.data[s] = 0;
+        bfs(queue, 1, ans.data, null, -1, obsColor, cyclic);
+        return ans;
+    }
+    /**
+     * Same as allDistance, computed by a level-synchronous BFS whose frontier is split across the
+     * workers of the common fork-join pool (see {@link ParallelBfs}); the result is identical.
+     * Maps smaller than ParallelBfs.SEQUENTIAL_THRESHOLD pixels use the sequential allDistance,
+     * as do the levels of the BFS whose frontier is too small to be worth splitting.
+     *
+     * @param start the starting pixel position
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around), otherwise edges are boundaries
+     * @return a new Map2D where each pixel contains its shortest distance from start, or -1 if unreachable
+     */
+    public Map2D allDistanceParallel(Pixel2D start, int obsColor, boolean cyclic) {
+        if (data.length < ParallelBfs.SEQUENTIAL_THRESHOLD) {
+            return allDistance(start, obsColor, cyclic);
+        }
+        Map ans = new Map(width, height, -1);
+        if (!isInside(start) || getPixel(start) == obsColor) {
             return ans;
         }
-        // Set starting position distance to 0
-        ans.setPixel(start, 0);
-
-        // Initialize BFS queue with starting pixel
-        Queue<Pixel2D> q = new LinkedList<>();
-        q.add(start);
-
-        // BFS main loop: explore all reachable pixels
-        while (!q.isEmpty()) {
-            Pixel2D current = q.poll();
-            // Get all valid neighbors of current pixel
-            ArrayList<Pixel2D> neighbors = getAllNeighbors(current, cyclic);
-
-            // Process each neighbor
-            for (Pixel2D neighbor : neighbors) {
-                // Check if neighbor hasn't been visited yet (distance == -1) and is not an obstacle
-                if (ans.getPixel(neighbor) == -1 && this.getPixel(neighbor) != obsColor) {
-                    // Set neighbor's distance to current distance + 1
-                    ans.setPixel(neighbor, ans.getPixel(current) + 1);
-                    // Add neighbor to queue for further exploration
-                    q.add(neighbor);
+        new ParallelBfs(this, obsColor, cyclic, ParallelBfs.DEFAULT_GRAIN).run(start.getY() * width + start.getX(), ans.data);
+        return ans;
+    }
+    /**
+     * Same as allDistance, computed by a direction-optimizing BFS (see {@link DirectionOptimizingBfs}):
+     * levels with a small frontier are expanded top-down, levels whose frontier covers a large part of the
+     * unvisited map are found bottom-up over bitsets. The result is identical to allDistance; the bottom-up
+     * levels pay off on wide, open maps where the frontier grows large.
+     *
+     * @param start the starting pixel position
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around), otherwise edges are boundaries
+     * @return a new Map2D where each pixel contains its shortest distance from start, or -1 if unreachable
+     */
+    public Map2D allDistanceDirectionOptimizing(Pixel2D start, int obsColor, boolean cyclic) {
+        Map ans = new Map(width, height, -1);
+        if (!isInside(start) || getPixel(start) == obsColor) {
+            return ans;
+        }
+        new DirectionOptimizingBfs(this, obsColor, cyclic).run(start.getY() * width + start.getX(), ans.data);
+        return ans;
+    }
+    /**
+     * Same as allDistance, computed by a bit-parallel BFS over a bitset of the passable pixels
+     * (see {@link BitParallelBfs}): every level shifts the frontier bits in the four directions and
+     * ANDs them with the passable, unvisited pixels, 64 pixels per word operation. The result is identical
+     * to allDistance; it pays off where the wave front runs along the rows, while around a single start
+     * pixel on open maps (a diamond shaped front) and in narrow mazes the plain allDistance is faster.
+     *
+     * @param start the starting pixel position
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around), otherwise edges are boundaries
+     * @return a new Map2D where each pixel contains its shortest distance from start, or -1 if unreachable
+     */
+    public Map2D allDistanceBitParallel(Pixel2D start, int obsColor, boolean cyclic) {
+        Map ans = new Map(width, height, -1);
+        if (!isInside(start) || getPixel(start) == obsColor) {
+            return ans;
+        }
+        new BitParallelBfs(this, obsColor, cyclic).run(start.getY() * width + start.getX(), ans.data);
+        return ans;
+    }
+    /**
+     * Computes the shortest distance from a set of sources to all reachable pixels in the map, in a single BFS
+     * (all the sources are seeded at distance 0), and labels every pixel with its nearest source.
+     * Sources that are outside the map or are obstacles are ignored; a repeated source keeps its first index.
+     *
+     * @param sources the source pixels
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around), otherwise edges are boundaries
+     * @return the distances from the nearest source and the index of that source (both -1 where unreachable)
+     */
+    public MultiSourceDistance allDistance(Pixel2D[] sources, int obsColor, boolean cyclic) {
+        Map dist = new Map(width, height, -1);
+        Map nearest = new Map(width, height, -1);
+        int[] queue = new int[data.length];
+        int tail = 0;
+        for (int i = 0; i < sources.length; i++) {
+            Pixel2D source = sources[i];
+            if (isInside(source) && getPixel(source) != obsColor) {
+                int s = source.getY() * width + source.getX();
+                if (dist.data[s] == -1) {
+                    dist.data[s] = 0;
+                    nearest.data[s] = i;
+                    queue[tail++] = s;
                 }
             }
         }
+        // The label array doubles as the parent array of the BFS: every visited cell first holds its parent cell,
+        // and since parents come earlier in BFS order, one pass in queue order replaces it by the parent's label
+        int count = bfs(queue, tail, dist.data, nearest.data, -1, obsColor, cyclic);
+        for (int i = tail; i < count; i++) {
+            int cell = queue[i];
+            nearest.data[cell] = nearest.data[nearest.data[cell]];
+        }
+        return new MultiSourceDistance(dist, nearest);
+    }
+    /**
+     * Finds a least-cost path between two pixels, where the pixel values are terrain costs:
+     * stepping into a pixel costs its value, and pixels of obsColor cannot be entered.
+     * Uses Dijkstra's algorithm with a bucket queue (see {@link DialSearch}), near-linear for small costs.
+     *
+     * @param p1 the starting pixel
+     * @param p2 the destination pixel
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around), otherwise edges are boundaries
+     * @return an array of consecutive pixels from p1 to p2 with the least total cost, or null if no path exists
+     * @throws IllegalArgumentException if a pixel that is not an obstacle has a negative value,
+     *         or the values of those pixels add up to more than Integer.MAX_VALUE
+     */
+    public Pixel2D[] shortestPathWeighted(Pixel2D p1, Pixel2D p2, int obsColor, boolean cyclic) {
+        // Both end points must be valid and in the same component, otherwise there is no path
+        if (!canConnect(p1, p2, obsColor, cyclic)) {
+            return null;
+        }
+        int start = p1.getY() * width + p1.getX();
+        int target = p2.getY() * width + p2.getX();
+        int[] dist = newDistanceArray();
+        int[] parent = new int[data.length];
+        new DialSearch(this, obsColor, cyclic).run(start, target, dist, parent);
+        if (dist[target] == -1) {
+            return null;
+        }
+        // The number of steps is not the cost, count it on the way back
+        int length = 0;
+        for (int cell = target; cell != start; cell = parent[cell]) {
+            length++;
+        }
+        return pathTo(parent, target, length);
+    }
+    /**
+     * Computes the least cost from a starting pixel to all reachable pixels in the map, where the pixel values
+     * are terrain costs: stepping into a pixel costs its value, and pixels of obsColor cannot be entered.
+     * Uses Dijkstra's algorithm with a bucket queue (see {@link DialSearch}), near-linear for small costs.
+     *
+     * @param start the starting pixel position
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around), otherwise edges are boundaries
+     * @return a new Map2D where each pixel contains its least cost from start, or -1 if unreachable
+     * @throws IllegalArgumentException if a pixel that is not an obstacle has a negative value,
+     *         or the values of those pixels add up to more than Integer.MAX_VALUE
+     */
+    public Map2D allDistanceWeighted(Pixel2D start, int obsColor, boolean cyclic) {
+        Map ans = new Map(width, height, -1);
+        if (!isInside(start) || getPixel(start) == obsColor) {
+            return ans;
+        }
+        new DialSearch(this, obsColor, cyclic).run(start.getY() * width + start.getX(), -1, ans.data, null);
         return ans;
     }
-	////////////////////// Private Methods ///////////////////////
+    /**
+     * Computes the shortest distances from a starting pixel to the pixels within maxDistance steps, stopping early
+     * once all the given targets are reached. Only a window around the start is allocated and traversed,
+     * so the cost depends on the neighborhood instead of the whole map.
+     * The result holds the bounding box of the reached pixels (see {@link DistanceWindow}); pixels beyond the
+     * radius, and pixels that were not reached before the early exit, have the distance -1.
+     *
+     * @param start the starting pixel position
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around), otherwise edges are boundaries
+     * @param maxDistance the largest distance to expand to, or a negative value for no limit
+     * @param targets the pixels to stop at once they are all reached, or null to expand everything within maxDistance
+     *                (targets beyond the radius or on obstacles are ignored)
+     * @return the distances of the reached pixels, in their bounding box
+     */
+    public DistanceWindow allDistanceWithin(Pixel2D start, int obsColor, boolean cyclic, int maxDistance, Pixel2D[] targets) {
+        if (!isInside(start) || getPixel(start) == obsColor) {
+            return new DistanceWindow(0, 0, 0, 0, width, height, new int[0]);
+        }
+        int radius = maxDistance < 0 ? Integer.MAX_VALUE : maxDistance;
+        int sx = start.getX();
+        int sy = start.getY();
+        // The window holds every cell within radius steps (by the Manhattan distance, a lower bound)
+        int originX = windowOrigin(sx, radius, width, cyclic);
+        int originY = windowOrigin(sy, radius, height, cyclic);
+        int ww = windowLength(sx, radius, width, cyclic);
+        int wh = windowLength(sy, radius, height, cyclic);
+        int[] dist = new int[ww * wh];
+        Arrays.fill(dist, -1);
+        boolean[] target = null;
+        int remaining = 0;
+        if (targets != null) {
+            target = new boolean[dist.length];
+            for (Pixel2D p : targets) {
+                int local = isInside(p) && getPixel(p) != obsColor ? windowIndex(p.getY() * width + p.getX(), originX, originY, ww, wh) : -1;
+                if (local >= 0 && !target[local]) {
+                    target[local] = true;
+                    remaining++;
+                }
+            }
+            if (remaining == 0) {
+                // No target can be reached within the window: expand everything
+                target = null;
+            }
+        }
+        long[] free = passabilityMask(obsColor).words();
+        int[] queue = new int[dist.length];
+        int s = sy * width + sx;
+        int sLocal = windowIndex(s, originX, originY, ww, wh);
+        queue[0] = s;
+        dist[sLocal] = 0;
+        if (target != null && target[sLocal]) {
+            remaining--;
+        }
+        int minX = sLocal % ww, maxX = minX, minY = sLocal / ww, maxY = minY;
+        int head = 0, tail = 1;
+        while (head < tail && (target == null || remaining > 0)) {
+            int current = queue[head++];
+            int d = dist[windowIndex(current, originX, originY, ww, wh)];
+            if (d == radius) {
+                continue;
+            }
+            int x = current % width;
+            int y = current / width;
+            for (int dir = UP; dir <= LEFT; dir++) {
+                int next = step(x, y, dir, cyclic);
+                if (next < 0 || (free[next >>> 6] & (1L << next)) == 0) {
+                    continue;
+                }
+                int local = windowIndex(next, originX, originY, ww, wh);
+                if (dist[local] != -1) {
+                    continue;
+                }
+                dist[local] = d + 1;
+                queue[tail++] = next;
+                int lx = local % ww;
+                int ly = local / ww;
+                minX = Math.min(minX, lx);
+                maxX = Math.max(maxX, lx);
+                minY = Math.min(minY, ly);
+                maxY = Math.max(maxY, ly);
+                if (target != null && target[local] && --remaining == 0) {
+                    break;
+                }
+            }
+        }
+        // Crop the window to the bounding box of the reached cells
+        int cw = maxX - minX + 1;
+        int ch = maxY - minY + 1;
+        int[] cropped = new int[cw * ch];
+        for (int y = 0; y < ch; y++) {
+            System.arraycopy(dist, (minY + y) * ww + minX, cropped, y * cw, cw);
+        }
+        return new DistanceWindow((originX + minX) % width, (originY + minY) % height, cw, ch, width, height, cropped);
+    }
+    /**
+     * Returns a lazy BFS from a starting pixel, visiting the reachable pixels in increasing order of distance
+     * (see {@link BfsIterator}). Unlike allDistance, only the pixels the caller pulls (and their neighbors) are
+     * traversed, so "find the nearest X" queries stop as soon as X is found.
+     *
+     * @param start the starting pixel position
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around), otherwise edges are boundaries
+     * @return an iterator over the packed (x, y, dist) values of the reachable pixels
+     *         (empty if start is outside the map or an obstacle)
+     */
+    public BfsIterator bfsIterator(Pixel2D start, int obsColor, boolean cyclic) {
+        return new BfsIterator(this, start, obsColor, cyclic);
+    }
 
     /**
-     * Gets all valid neighbors of a given pixel (up, down, left, right).
-     * In non-cyclic mode, only returns neighbors within map boundaries.
-     * In cyclic mode, edges wrap around (e.g., right edge connects to left edge).
-     * 
-     * @param p the pixel to get neighbors for
-     * @param cyclic if true, map is cyclic (edges wrap around), otherwise edges are boundaries
-     * @return an ArrayList of valid neighboring pixels
+     * Computes the exact Euclidean distance of every pixel to the nearest pixel of a given color,
+     * in O(width * height) with the separable algorithm of Felzenszwalb and Huttenlocher (see {@link DistanceTransform}).
+     * Useful for clearance maps: how far every pixel is from the nearest obstacle.
+     *
+     * @param color the color of the pixels to measure the distance to
+     * @return the squared and the float distances of every pixel (-1 everywhere if no pixel has the color)
+     * @throws IllegalArgumentException if a squared distance across the map does not fit in an int
+     *         (about 46000 pixels on a side for a row or a column, about 32700 on both sides for a square map)
+     */
+    public DistanceTransform distanceTransform(int color) {
+        return new DistanceTransform(this, color);
+    }
+
+    /**
+     * Checks if there is any valid path between two pixels, in O(1) once the component index
+     * of (obsColor, cyclic) is built. The index is built on first use and rebuilt lazily after
+     * the map changes (see {@link ComponentIndex}).
+     *
+     * @param p1 the first pixel
+     * @param p2 the second pixel
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around), otherwise edges are boundaries
+     * @return true if both pixels are inside the map, are not obstacles and are connected
+     */
+    public boolean isConnected(Pixel2D p1, Pixel2D p2, int obsColor, boolean cyclic) {
+        if (!isInside(p1) || !isInside(p2)) {
+            return false;
+        }
+        return componentIndex(obsColor, cyclic).connected(p1.getY() * width + p1.getX(), p2.getY() * width + p2.getX());
+    }
+    /**
+     * Same as allDistance, but the results are kept in a bounded LRU cache keyed by (start, obsColor, cyclic),
+     * so repeated calls between changes of the map cost a lookup instead of a BFS.
+     * Every change of the map invalidates the cache. The returned map is shared by all the callers,
+     * so it is read-only (its mutating methods throw an UnsupportedOperationException).
+     *
+     * @param start the starting pixel position
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around), otherwise edges are boundaries
+     * @return a read-only Map2D where each pixel contains its shortest distance from start, or -1 if unreachable
      */
-    private ArrayList<Pixel2D> getAllNeighbors(Pixel2D p, boolean cyclic) {
-        ArrayList<Pixel2D> neighbors = new ArrayList<>();
+    public Map2D allDistanceCached(Pixel2D start, int obsColor, boolean cyclic) {
+        // Start pixels outside the map have no cell index to key on, they are not cached
+        if (!isInside(start)) {
+            return new ReadOnlyMap(allDistance(start, obsColor, cyclic));
+        }
+        if (distances == null) {
+            distances = new DistanceCache(distanceCacheBudget);
+        }
+        long key = DistanceCache.key(start.getY() * width + start.getX(), obsColor, cyclic);
+        int version = modCount;
+        ReadOnlyMap ans = distances.get(key, version);
+        if (ans == null) {
+            ans = new ReadOnlyMap(allDistance(start, obsColor, cyclic));
+            distances.put(key, ans, version);
+        }
+        return ans;
+    }
+    /**
+     * Sets the memory budget of the allDistance cache (a distance map takes 4 bytes per pixel).
+     * Lowering the budget evicts the least recently used maps, 0 disables the cache.
+     *
+     * @param bytes the memory budget in bytes
+     * @throws IllegalArgumentException if bytes is negative
+     */
+    public void setDistanceCacheBudget(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("negative cache budget: " + bytes);
+        }
+        distanceCacheBudget = bytes;
+        if (distances != null) {
+            distances.setBudget(bytes);
+        }
+    }
+	////////////////////// Derived Data ///////////////////////
 
-        // Add the up neighbor (increasing Y coordinate)
-        if (p.getY() < getHeight() - 1) {
-            // Standard case: not at top edge
-            neighbors.add(new Index2D(p.getX(), p.getY() + 1));
+    /**
+     * Registers a listener that is notified after every change of this map.
+     * @param listener the listener to add
+     */
+    public void addListener(MapListener listener) {
+        if (listeners == null) {
+            listeners = new ArrayList<>();
         }
-        else if (cyclic) {
-            // Cyclic case: wrap to bottom of map
-            neighbors.add(new Index2D(p.getX(), 0));
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener that was added with addListener.
+     * @param listener the listener to remove
+     */
+    public void removeListener(MapListener listener) {
+        if (listeners != null) {
+            listeners.remove(listener);
         }
+    }
 
-        // Add the down neighbor (decreasing Y coordinate)
-        if (p.getY() > 0) {
-            // Standard case: not at bottom edge
-            neighbors.add(new Index2D(p.getX(), p.getY() - 1));
+    /**
+     * Records that some pixels within a rectangle have changed: invalidates all derived data
+     * and notifies the listeners.
+     * @param minX the smallest x coordinate of the changed rectangle
+     * @param minY the smallest y coordinate of the changed rectangle
+     * @param maxX the largest x coordinate of the changed rectangle
+     * @param maxY the largest y coordinate of the changed rectangle
+     */
+    private void modified(int minX, int minY, int maxX, int maxY) {
+        modCount++;
+        if (masks != null) {
+            if (minX == 0 && minY == 0 && maxX == width - 1 && maxY == height - 1) {
+                // The whole map changed (mul, addMap2D, ...), rebuilding on demand is cheaper than refreshing
+                masks = null;
+            }
+            else {
+                for (PassabilityMask mask : masks.values()) {
+                    mask.refresh(data, width, minX, minY, maxX, maxY);
+                }
+            }
+        }
+        if (listeners != null) {
+            for (MapListener listener : listeners) {
+                listener.regionChanged(this, minX, minY, maxX, maxY);
+            }
+        }
+    }
+
+    /**
+     * Records that the whole map was replaced (possibly with new dimensions): invalidates all
+     * derived data and notifies the listeners.
+     */
+    private void replaced() {
+        modCount++;
+        masks = null;
+        if (listeners != null) {
+            for (MapListener listener : listeners) {
+                listener.mapReset(this);
+            }
+        }
+    }
+
+    /**
+     * @return the modification count of the map (changes with every change of the pixels),
+     *         for the derived data that is built once and must detect that it became stale
+     */
+    int version() {
+        return modCount;
+    }
+
+    /**
+     * Returns the component index of (obsColor, cyclic) for the current state of the map,
+     * building it if it is missing or was built before the last change.
+     * @param obsColor the color value representing obstacles
+     * @param cyclic if true, the map edges wrap around
+     * @return an up to date component index
+     */
+    ComponentIndex componentIndex(int obsColor, boolean cyclic) {
+        ComponentIndex index = currentComponentIndex(obsColor, cyclic);
+        if (index == null) {
+            index = new ComponentIndex(this, obsColor, cyclic, modCount);
+            components.put(((long)obsColor << 1) | (cyclic ? 1 : 0), index);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the component index of (obsColor, cyclic) if one was built since the last change, without building it.
+     * @param obsColor the color value representing obstacles
+     * @param cyclic if true, the map edges wrap around
+     * @return an up to date component index, or null if there is none
+     */
+    ComponentIndex currentComponentIndex(int obsColor, boolean cyclic) {
+        if (components == null) {
+            // Access ordered, so the least recently used index is evicted first
+            components = new LinkedHashMap<>(8, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(java.util.Map.Entry<Long, ComponentIndex> eldest) {
+                    return size() > MAX_COMPONENT_INDICES;
+                }
+            };
+        }
+        ComponentIndex index = components.get(((long)obsColor << 1) | (cyclic ? 1 : 0));
+        return index == null || index.version() != modCount ? null : index;
+    }
+
+    /**
+     * Returns the passability mask of obsColor for the current state of the map, building it if it is missing.
+     * The mask is kept up to date by the methods that change the map (see {@link PassabilityMask}).
+     * @param obsColor the color value representing obstacles
+     * @return an up to date passability mask
+     */
+    synchronized PassabilityMask passabilityMask(int obsColor) {
+        if (masks == null) {
+            // Access ordered, so the least recently used mask is evicted first
+            masks = new LinkedHashMap<>(8, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(java.util.Map.Entry<Integer, PassabilityMask> eldest) {
+                    return size() > MAX_PASSABILITY_MASKS;
+                }
+            };
+        }
+        PassabilityMask mask = masks.get(obsColor);
+        if (mask == null) {
+            mask = new PassabilityMask(data, obsColor);
+            masks.put(obsColor, mask);
+        }
+        return mask;
+    }
+
+    /**
+     * Returns the first coordinate of the window of all the coordinates within radius of c on one axis.
+     * @param c the coordinate of the center
+     * @param radius the radius of the window
+     * @param size the size of the axis (width or height)
+     * @param cyclic if true, the axis wraps around
+     * @return the first coordinate of the window
+     */
+    private static int windowOrigin(int c, int radius, int size, boolean cyclic) {
+        if (cyclic) {
+            return 2L * radius + 1 >= size ? 0 : ((c - radius) % size + size) % size;
+        }
+        return Math.max(0, c - radius);
+    }
+
+    /**
+     * Returns the length of the window of all the coordinates within radius of c on one axis.
+     * @param c the coordinate of the center
+     * @param radius the radius of the window
+     * @param size the size of the axis (width or height)
+     * @param cyclic if true, the axis wraps around
+     * @return the length of the window
+     */
+    private static int windowLength(int c, int radius, int size, boolean cyclic) {
+        if (cyclic) {
+            return 2L * radius + 1 >= size ? size : 2 * radius + 1;
+        }
+        return (int) Math.min((long) c + radius, size - 1) - Math.max(0, c - radius) + 1;
+    }
+
+    /**
+     * Returns the index of a cell in a window of the map (the window may wrap around the map edges).
+     * @param cell the packed index of the cell
+     * @param originX the x coordinate of the window's first cell
+     * @param originY the y coordinate of the window's first cell
+     * @param ww the width of the window
+     * @param wh the height of the window
+     * @return the row-major index of the cell in the window, or -1 if the cell is outside the window
+     */
+    private int windowIndex(int cell, int originX, int originY, int ww, int wh) {
+        int lx = cell % width - originX;
+        int ly = cell / width - originY;
+        if (lx < 0) {
+            lx += width;
+        }
+        if (ly < 0) {
+            ly += height;
         }
-        else if (cyclic) {
-            // Cyclic case: wrap to top of map
-            neighbors.add(new Index2D(p.getX(), getHeight() - 1));
+        return lx < ww && ly < wh ? ly * ww + lx : -1;
+    }
+
+    /**
+     * Checks the end points of a path query: both must be inside the map, must not be obstacles
+     * and, if an up to date component index exists, must be in the same component.
+     * A stale index is not rebuilt here: that costs a pass over the whole map, more than a short search
+     * after a single edit, so without an index the search itself finds out that there is no path.
+     * @param p1 the first end point
+     * @param p2 the second end point
+     * @param obsColor the color value representing obstacles
+     * @param cyclic if true, the map edges wrap around
+     * @return false if there is certainly no path between p1 and p2
+     */
+    boolean canConnect(Pixel2D p1, Pixel2D p2, int obsColor, boolean cyclic) {
+        if (!isInside(p1) || !isInside(p2) || getPixel(p1) == obsColor || getPixel(p2) == obsColor) {
+            return false;
         }
+        ComponentIndex index = currentComponentIndex(obsColor, cyclic);
+        return index == null || index.connected(p1.getY() * width + p1.getX(), p2.getY() * width + p2.getX());
+    }
 
-        // Add the right neighbor (increasing X coordinate)
-        if (p.getX() < getWidth() - 1) {
-            // Standard case: not at right edge
-            neighbors.add(new Index2D(p.getX() + 1, p.getY()));
+	////////////////////// Traversal Kernel ///////////////////////
+
+    /** Direction code of the up neighbor (increasing Y coordinate). */
+    static final int UP = 0;
+    /** Direction code of the down neighbor (decreasing Y coordinate). */
+    static final int DOWN = 1;
+    /** Direction code of the right neighbor (increasing X coordinate). */
+    static final int RIGHT = 2;
+    /** Direction code of the left neighbor (decreasing X coordinate). */
+    static final int LEFT = 3;
+    // Note: the codes are paired so that (dir ^ 1) is always the opposite direction.
+
+    /**
+     * Returns the packed index (y*width + x) of the neighbor of (x, y) in the given direction.
+     * In non-cyclic mode, a step over the edge has no neighbor.
+     * In cyclic mode, edges wrap around (e.g., right edge connects to left edge).
+     *
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     * @param dir one of UP, DOWN, RIGHT, LEFT
+     * @param cyclic if true, map is cyclic (edges wrap around), otherwise edges are boundaries
+     * @return the packed index of the neighbor, or -1 if there is none
+     */
+    int step(int x, int y, int dir, boolean cyclic) {
+        if (dir == UP) {
+            if (y < height - 1) {
+                return (y + 1) * width + x;
+            }
+            // Cyclic case: wrap to row 0
+            return cyclic ? x : -1;
+        }
+        if (dir == DOWN) {
+            if (y > 0) {
+                return (y - 1) * width + x;
+            }
+            // Cyclic case: wrap to the last row
+            return cyclic ? (height - 1) * width + x : -1;
         }
-        else if (cyclic) {
-            // Cyclic case: wrap to left edge of map
-            neighbors.add(new Index2D(0, p.getY()));
+        if (dir == RIGHT) {
+            if (x < width - 1) {
+                return y * width + x + 1;
+            }
+            // Cyclic case: wrap to the left edge of the row
+            return cyclic ? y * width : -1;
+        }
+        if (x > 0) {
+            return y * width + x - 1;
         }
+        // Cyclic case: wrap to the right edge of the row
+        return cyclic ? y * width + width - 1 : -1;
+    }
+
+    /**
+     * Returns the packed index of the neighbor of a cell in the given direction.
+     * @param cell the packed index of the cell
+     * @param dir one of UP, DOWN, RIGHT, LEFT
+     * @param cyclic if true, map is cyclic (edges wrap around), otherwise edges are boundaries
+     * @return the packed index of the neighbor, or -1 if there is none
+     */
+    int step(int cell, int dir, boolean cyclic) {
+        return step(cell % width, cell / width, dir, cyclic);
+    }
 
-        // Add the left neighbor (decreasing X coordinate)
-        if (p.getX() > 0) {
-            // Standard case: not at left edge
-            neighbors.add(new Index2D(p.getX() - 1, p.getY()));
+    /**
+     * Returns the value stored at a packed cell index (no bounds check).
+     * @param cell the packed index y*width + x
+     * @return the pixel value of the cell
+     */
+    int pixelAt(int cell) {
+        return data[cell];
+    }
+
+    /**
+     * The shared breadth-first traversal kernel used by shortestPath and allDistance.
+     * Cells are packed int indices (y*width + x) and the queue is a plain int array with one slot
+     * per cell: every cell enters the queue at most once, so the head and tail never wrap around
+     * and no objects are allocated per cell.
+     * The caller seeds the queue (and the matching dist entries) with one or more start cells.
+     * A cell is passable if its value differs from obsColor, as recorded in the passability mask.
+     * Neighbors are expanded in the order up, down, right, left.
+     *
+     * @param queue the queue array (length width*height), seeded in [0, tail)
+     * @param tail the number of seeded cells
+     * @param dist per-cell distance, -1 marks unvisited cells; seeds must already be set
+     * @param parent per-cell parent index in the BFS tree, or null if parents are not needed
+     * @param target a cell index to stop at once it is discovered, or -1 to traverse everything
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around)
+     * @return the number of cells in the queue, i.e. queue[0..return) are all the visited cells in BFS order
+     */
+    int bfs(int[] queue, int tail, int[] dist, int[] parent, int target, int obsColor, boolean cyclic) {
+        long[] free = passabilityMask(obsColor).words();
+        int head = 0;
+        while (head < tail) {
+            int current = queue[head++];
+            int x = current % width;
+            int y = current / width;
+            int nextDist = dist[current] + 1;
+            for (int dir = UP; dir <= LEFT; dir++) {
+                int next = step(x, y, dir, cyclic);
+                // Only unvisited, passable neighbors are added
+                if (next >= 0 && dist[next] == -1 && (free[next >>> 6] & (1L << next)) != 0) {
+                    dist[next] = nextDist;
+                    if (parent != null) {
+                        parent[next] = current;
+                    }
+                    queue[tail++] = next;
+                    if (next == target) {
+                        return tail;
+                    }
+                }
+            }
         }
-        else if (cyclic) {
-            // Cyclic case: wrap to right edge of map
-            neighbors.add(new Index2D(getWidth() - 1, p.getY()));
+        return tail;
+    }
+
+    /**
+     * The shared A* kernel used by the goal directed searches.
+     * The open list is a primitive binary heap ordered by f = g + h, breaking ties in favor of the larger g
+     * (the cell closer to the target). A cell may be pushed more than once; once it is polled it is closed
+     * and its later (stale) entries are skipped. The heuristic must be consistent (monotone) for the
+     * returned path to be a shortest one.
+     *
+     * @param start the packed index of the starting cell (must be passable)
+     * @param target the packed index of the destination cell (must be passable)
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around)
+     * @param heuristic a lower bound of the number of steps from a cell to the target
+     * @return the path from start to target, or null if there is none
+     */
+    Pixel2D[] aStar(int start, int target, int obsColor, boolean cyclic, IntUnaryOperator heuristic) {
+        int[] g = newDistanceArray();
+        int[] parent = new int[data.length];
+        boolean[] closed = new boolean[data.length];
+        long[] free = passabilityMask(obsColor).words();
+        IntPriorityQueue open = new IntPriorityQueue(256);
+        g[start] = 0;
+        parent[start] = -1;
+        open.add(start, aStarPriority(0, heuristic.applyAsInt(start)));
+
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            if (closed[current]) {
+                continue;
+            }
+            if (current == target) {
+                return pathTo(parent, target, g[target]);
+            }
+            closed[current] = true;
+            int x = current % width;
+            int y = current / width;
+            int nextG = g[current] + 1;
+            for (int dir = UP; dir <= LEFT; dir++) {
+                int next = step(x, y, dir, cyclic);
+                if (next < 0 || closed[next] || (free[next >>> 6] & (1L << next)) == 0) {
+                    continue;
+                }
+                if (g[next] == -1 || nextG < g[next]) {
+                    g[next] = nextG;
+                    parent[next] = current;
+                    open.add(next, aStarPriority(nextG, heuristic.applyAsInt(next)));
+                }
+            }
         }
+        // The open list ran out: the target is not reachable
+        return null;
+    }
+
+    /**
+     * Packs the A* priority of a cell: f = g + h in the high half, and ties broken by the larger g.
+     * @param g the number of steps from the start
+     * @param h the heuristic estimate to the target
+     * @return the heap priority
+     */
+    static long aStarPriority(int g, int h) {
+        return ((long)(g + h) << 32) | (Integer.MAX_VALUE - g);
+    }
 
-        return neighbors;
+    /**
+     * Computes the Manhattan distance between two cells.
+     * In cyclic mode each axis uses the shorter way around (the torus Manhattan distance).
+     * @param a the packed index of the first cell
+     * @param b the packed index of the second cell
+     * @param cyclic if true, treats the map as cyclic (edges wrap around)
+     * @return the Manhattan distance between the cells
+     */
+    int manhattan(int a, int b, boolean cyclic) {
+        int dx = Math.abs(a % width - b % width);
+        int dy = Math.abs(a / width - b / width);
+        if (cyclic) {
+            dx = Math.min(dx, width - dx);
+            dy = Math.min(dy, height - dy);
+        }
+        return dx + dy;
     }
 
+    /**
+     * Creates a per-cell distance array with all cells marked as unvisited (-1).
+     * @return a new array of length width*height filled with -1
+     */
+    int[] newDistanceArray() {
+        int[] dist = new int[data.length];
+        Arrays.fill(dist, -1);
+        return dist;
+    }
+
+    /**
+     * Builds the path ending at the target cell by following the parent indices back to the root.
+     * @param parent per-cell parent index (the root has parent -1)
+     * @param target the last cell of the path
+     * @param length the number of steps from the root to the target
+     * @return the path from the root to the target (length + 1 pixels)
+     */
+    Pixel2D[] pathTo(int[] parent, int target, int length) {
+        Pixel2D[] path = new Pixel2D[length + 1];
+        int current = target;
+        for (int i = length; i >= 0; i--) {
+            path[i] = new Index2D(current % width, current / width);
+            current = parent[current];
+        }
+        return path;
+    }
+
+	////////////////////// Private Methods ///////////////////////
+
     /**
      * Calculates the linear function (y = mx + b) that passes through two points.
      * Used for line drawing algorithm to interpolate pixel positions.
@@ -632,67 +1668,4 @@ public class Map implements Map2D, Serializable{
         // Calculate y = mx + b and round to nearest integer
         return (int)(func[0] * x + func[1] + 0.5);
     }
-
-    /**
-     * Recursively fills a connected component of pixels with the same color.
-     * This is the core of the flood fill algorithm.
-     * 
-     * @param index the current pixel being processed
-     * @param originColor the original color that should be replaced
-     * @param new_v the new color to fill with
-     * @param cyclic if true, treats the map as cyclic (edges wrap around)
-     * @return the number of pixels filled by this recursive call and its children
-     */
-    public int recursiveFill(Pixel2D index, int originColor, int new_v,  boolean cyclic) {
-        // Base case: if current pixel doesn't have the origin color, stop recursion
-        if (matrix[index.getY()][index.getX()] != originColor) {
-            return 0;
-        }
-
-        // Fill current pixel with new color
-        matrix[index.getY()][index.getX()] = new_v;
-        int result = 1;  // Count this pixel
-
-        // Recursively fill all neighbors that have the same origin color
-        ArrayList<Pixel2D> neighbors = getAllNeighbors(index, cyclic);
-        for (Pixel2D neighbor : neighbors){
-            // Add the count of pixels filled by recursive calls
-            result += recursiveFill(neighbor, originColor, new_v, cyclic);
-        }
-
-        return result;
-    }
 }
-
-/**
- * Helper class used for BFS pathfinding algorithm.
- * Stores a pixel, its parent in the search tree, and visited status.
- */
-class Node {
-    /** The pixel coordinate this node represents */
-    public Pixel2D current;
-    /** The parent node in the BFS tree (null for the root) */
-    public Node parent;
-    /** Whether this node has been visited during BFS */
-    public boolean visited;
-
-    /**
-     * Constructs a new Node with the given pixel.
-     * @param p the pixel coordinate for this node
-     */
-    public Node(Pixel2D p) {
-        this.current = p;
-        this.parent = null;
-        this.visited = false;
-    }
-
-    /**
-     * Marks this node as visited and sets its parent.
-     * Used during BFS to track the path back to the starting node.
-     * @param parent the parent node in the BFS tree
-     */
-    public void visit(Node parent) {
-        this.parent = parent;
-        this.visited = true;
-    }
-}
\ No newline at end of file
@@ -0,0 +1,26 @@
+package ex2;
+
+/**
+ * This interface represents an observer of the changes made to a Map.
+ * Structures that are derived from the pixels of a map (search indices, caches, ...) register
+ * themselves with {@link Map#addListener(MapListener)} and patch or rebuild only what changed.
+ * The callbacks are made after the pixels were changed.
+ */
+public interface MapListener {
+    /**
+     * Called after some of the pixels within a rectangle of the map may have changed.
+     * The dimensions of the map did not change.
+     * @param map the map that changed
+     * @param minX the smallest x coordinate of the changed rectangle
+     * @param minY the smallest y coordinate of the changed rectangle
+     * @param maxX the largest x coordinate of the changed rectangle
+     * @param maxY the largest y coordinate of the changed rectangle
+     */
+    public void regionChanged(Map map, int minX, int minY, int maxX, int maxY);
+
+    /**
+     * Called after the whole map was replaced (by init or rescale) - the dimensions may have changed.
+     * @param map the map that changed
+     */
+    public void mapReset(Map map);
+}
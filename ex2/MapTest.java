@@ -4,6 +4,9 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 
+import java.util.Arrays;
+import java.util.Random;
+
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -195,6 +198,25 @@ class MapTest {
         assertEquals(0, copy[0][0]);
     }
 
+    /**
+     * Test that getMap returns rows in [y][x] order for a non-square map
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testGetMapNonSquare() {
+        int[][] data = {{1, 2, 3}, {4, 5, 6}};
+        Map map = new Map(data);
+        assertEquals(3, map.getWidth());
+        assertEquals(2, map.getHeight());
+        assertEquals(6, map.getPixel(2, 1));
+        int[][] copy = map.getMap();
+        for (int y = 0; y < 2; y++) {
+            for (int x = 0; x < 3; x++) {
+                assertEquals(data[y][x], copy[y][x]);
+            }
+        }
+    }
+
     // ==================== GetWidth/GetHeight Tests ====================
 
     /**
@@ -708,6 +730,37 @@ class MapTest {
         }
     }
 
+    /**
+     * Test that a line notifies the listeners once, with its bounding box clipped to the map
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testDrawLineSingleNotification() {
+        Map map = new Map(10, 10, 0);
+        int[][] calls = new int[2][];
+        int[] count = new int[1];
+        map.addListener(new MapListener() {
+            @Override
+            public void regionChanged(Map m, int minX, int minY, int maxX, int maxY) {
+                calls[Math.min(count[0]++, 1)] = new int[]{minX, minY, maxX, maxY};
+            }
+
+            @Override
+            public void mapReset(Map m) {
+            }
+        });
+        map.drawLine(new Index2D(1, 2), new Index2D(8, 5), 3);
+        assertEquals(1, count[0]);
+        assertArrayEquals(new int[]{1, 2, 8, 5}, calls[0]);
+        map.drawLine(new Index2D(4, -3), new Index2D(6, 14), 3);
+        assertEquals(2, count[0]);
+        assertEquals(0, calls[1][1]);
+        assertEquals(9, calls[1][3]);
+        assertEquals(3, map.getPixel(5, 5));
+        map.drawLine(new Index2D(-5, -5), new Index2D(-1, -2), 3);
+        assertEquals(2, count[0]);
+    }
+
     // ==================== DrawRect Tests ====================
 
     /**
@@ -780,6 +833,21 @@ class MapTest {
         }
     }
 
+    /**
+     * Test drawRect partly outside the map (only the inside part is drawn, rows do not bleed)
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testDrawRectClipped() {
+        Map map = new Map(5, 5, 0);
+        map.drawRect(new Index2D(3, 3), new Index2D(7, 8), 1);
+        for (int x = 0; x < 5; x++) {
+            for (int y = 0; y < 5; y++) {
+                assertEquals(x >= 3 && y >= 3 ? 1 : 0, map.getPixel(x, y));
+            }
+        }
+    }
+
     // ==================== Equals Tests ====================
 
     /**
@@ -836,6 +904,24 @@ class MapTest {
         assertEquals(map, map);
     }
 
+    /**
+     * Test that equality with a read-only view is symmetric and that equal objects have equal hash codes
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testEqualsReadOnlyViewSymmetric() {
+        Map map = new Map(new int[][]{{1, 2}, {3, 4}});
+        Map copy = new Map(new int[][]{{1, 2}, {3, 4}});
+        Map2D view = new ReadOnlyMap(map);
+        assertTrue(copy.equals(view));
+        assertTrue(view.equals(copy));
+        assertEquals(copy.hashCode(), map.hashCode());
+        assertEquals(copy.hashCode(), view.hashCode());
+        copy.setPixel(0, 0, 9);
+        assertFalse(copy.equals(view));
+        assertFalse(view.equals(copy));
+    }
+
     // ==================== Fill Tests ====================
 
     /**
@@ -914,6 +1000,52 @@ class MapTest {
         assertEquals(5, filled);  // 5 pixels in L shape
     }
 
+    /**
+     * Test fill of a large connected region (must not overflow the stack)
+     */
+    @Test
+    @Timeout(value = 2, unit = SECONDS)
+    void testFillLargeRegion() {
+        Map map = new Map(1000, 1000, 0);
+        int filled = map.fill(new Index2D(500, 500), 3, false);
+        assertEquals(1000 * 1000, filled);
+        assertEquals(3, map.getPixel(0, 999));
+    }
+
+    /**
+     * Test cyclic fill where a span wraps around the row end
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testFillCyclicWrappedSpan() {
+        Map map = new Map(new int[][]{
+            {1, 1, 0, 1},
+            {0, 0, 0, 0},
+            {1, 0, 1, 1}});
+        // (3,0) and (0,0) are neighbors across the row end, (3,2) and (3,0) across the column end
+        int filled = map.fill(new Index2D(1, 0), 5, true);
+        assertEquals(6, filled);
+        assertEquals(5, map.getPixel(3, 0));
+        assertEquals(5, map.getPixel(0, 2));
+        assertEquals(5, map.getPixel(2, 2));
+        assertEquals(0, map.getPixel(2, 0));
+        // Without wrapping only the two pixels on the left of the first row are connected
+        Map flat = new Map(map.getMap());
+        assertEquals(2, flat.fill(new Index2D(0, 0), 7, false));
+    }
+
+    /**
+     * Test cyclic fill of a row that is entirely of one color (the span must stop after one lap)
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testFillCyclicFullRow() {
+        Map map = new Map(6, 3, 0);
+        map.drawRect(new Index2D(0, 1), new Index2D(5, 1), 2);
+        assertEquals(6, map.fill(new Index2D(3, 1), 4, true));
+        assertEquals(12, map.fill(new Index2D(0, 0), 9, true));
+    }
+
     // ==================== ShortestPath Tests ====================
 
     /**
@@ -994,6 +1126,848 @@ class MapTest {
         assertEquals(end, path[path.length - 1]);
     }
 
+    /**
+     * Test shortestPath with an end point outside the map or on an obstacle
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testShortestPathInvalidEndPoints() {
+        Map map = new Map(5, 5, 0);
+        map.setPixel(4, 4, 1);
+        assertNull(map.shortestPath(new Index2D(0, 0), new Index2D(5, 0), 1, false));
+        assertNull(map.shortestPath(new Index2D(-1, 0), new Index2D(2, 2), 1, false));
+        assertNull(map.shortestPath(new Index2D(0, 0), new Index2D(4, 4), 1, false));
+        assertNull(map.shortestPath(new Index2D(4, 4), new Index2D(4, 4), 1, false));
+    }
+
+    /**
+     * Test shortestPath on a large open map (path length is the Manhattan distance)
+     */
+    @Test
+    @Timeout(value = 2, unit = SECONDS)
+    void testShortestPathLargeMap() {
+        Map map = new Map(1000, 1000, 0);
+        map.drawRect(new Index2D(500, 0), new Index2D(500, 998), 1);
+        Pixel2D[] path = map.shortestPath(new Index2D(0, 0), new Index2D(999, 0), 1, false);
+        assertNotNull(path);
+        assertEquals(999 + 2 * 999 + 1, path.length);
+        for (int i = 1; i < path.length; i++) {
+            assertEquals(1.0, path[i].distance2D(path[i - 1]), 0.0);
+        }
+    }
+
+    // ==================== Bidirectional ShortestPath Tests ====================
+
+    /**
+     * Test bidirectional shortestPath around an obstacle wall (same length as the BFS path)
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testShortestPathBidirectionalWithObstacles() {
+        Map map = new Map(5, 5, 0);
+        map.drawLine(new Index2D(2, 0), new Index2D(2, 3), 1);
+        Pixel2D start = new Index2D(0, 2);
+        Pixel2D end = new Index2D(4, 2);
+        Pixel2D[] path = map.shortestPathBidirectional(start, end, 1, false);
+        assertNotNull(path);
+        assertEquals(9, path.length);
+        assertEquals(start, path[0]);
+        assertEquals(end, path[path.length - 1]);
+        for (int i = 1; i < path.length; i++) {
+            assertEquals(1.0, path[i].distance2D(path[i - 1]), 0.0);
+            assertNotEquals(1, map.getPixel(path[i]));
+        }
+    }
+
+    /**
+     * Test bidirectional shortestPath with cyclic mode, same point and no path
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testShortestPathBidirectionalSpecialCases() {
+        Map map = new Map(5, 5, 0);
+        // Across the cyclic edge (0,2) and (4,2) are neighbors
+        assertEquals(2, map.shortestPathBidirectional(new Index2D(0, 2), new Index2D(4, 2), -1, true).length);
+        assertEquals(1, map.shortestPathBidirectional(new Index2D(3, 3), new Index2D(3, 3), -1, false).length);
+        map.drawRect(new Index2D(0, 2), new Index2D(4, 2), 1);
+        assertNull(map.shortestPathBidirectional(new Index2D(0, 0), new Index2D(4, 4), 1, false));
+    }
+
+    /**
+     * Test that bidirectional shortestPath matches the BFS path length on random maps
+     */
+    @Test
+    @Timeout(value = 2, unit = SECONDS)
+    void testShortestPathBidirectionalMatchesBfs() {
+        Random rand = new Random(4);
+        for (int i = 0; i < 300; i++) {
+            Map map = randomMap(rand, 1 + rand.nextInt(20), 1 + rand.nextInt(20), 0.3);
+            boolean cyclic = rand.nextBoolean();
+            Pixel2D p1 = new Index2D(rand.nextInt(map.getWidth()), rand.nextInt(map.getHeight()));
+            Pixel2D p2 = new Index2D(rand.nextInt(map.getWidth()), rand.nextInt(map.getHeight()));
+            Pixel2D[] bfs = map.shortestPath(p1, p2, -1, cyclic);
+            Pixel2D[] bidirectional = map.shortestPathBidirectional(p1, p2, -1, cyclic);
+            if (bfs == null) {
+                assertNull(bidirectional);
+            }
+            else {
+                assertEquals(bfs.length, bidirectional.length);
+            }
+        }
+    }
+
+    // ==================== A* ShortestPath Tests ====================
+
+    /**
+     * Test A* shortestPath around an obstacle wall
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testShortestPathAStarWithObstacles() {
+        Map map = new Map(5, 5, 0);
+        map.drawLine(new Index2D(2, 0), new Index2D(2, 3), 1);
+        Pixel2D start = new Index2D(0, 2);
+        Pixel2D end = new Index2D(4, 2);
+        Pixel2D[] path = map.shortestPathAStar(start, end, 1, false);
+        assertNotNull(path);
+        assertEquals(9, path.length);
+        assertEquals(start, path[0]);
+        assertEquals(end, path[path.length - 1]);
+    }
+
+    /**
+     * Test A* shortestPath with cyclic mode (the torus heuristic must not overestimate) and no path
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testShortestPathAStarCyclicAndBlocked() {
+        Map map = new Map(10, 10, 0);
+        Pixel2D[] path = map.shortestPathAStar(new Index2D(0, 0), new Index2D(9, 9), -1, true);
+        assertEquals(3, path.length);
+        map.drawRect(new Index2D(0, 5), new Index2D(9, 5), 1);
+        assertNull(map.shortestPathAStar(new Index2D(0, 0), new Index2D(9, 9), 1, false));
+        // Wrapping below row 0 reaches (0,7) in 3 steps
+        assertEquals(4, map.shortestPathAStar(new Index2D(0, 0), new Index2D(0, 7), 1, true).length);
+    }
+
+    /**
+     * Test that A* shortestPath matches the BFS path length on random maps
+     */
+    @Test
+    @Timeout(value = 2, unit = SECONDS)
+    void testShortestPathAStarMatchesBfs() {
+        Random rand = new Random(5);
+        for (int i = 0; i < 300; i++) {
+            Map map = randomMap(rand, 1 + rand.nextInt(20), 1 + rand.nextInt(20), 0.3);
+            boolean cyclic = rand.nextBoolean();
+            Pixel2D p1 = new Index2D(rand.nextInt(map.getWidth()), rand.nextInt(map.getHeight()));
+            Pixel2D p2 = new Index2D(rand.nextInt(map.getWidth()), rand.nextInt(map.getHeight()));
+            Pixel2D[] bfs = map.shortestPath(p1, p2, -1, cyclic);
+            Pixel2D[] aStar = map.shortestPathAStar(p1, p2, -1, cyclic);
+            if (bfs == null) {
+                assertNull(aStar);
+            }
+            else {
+                assertEquals(bfs.length, aStar.length);
+            }
+        }
+    }
+
+    // ==================== Jump Point Search Tests ====================
+
+    /**
+     * Test Jump Point Search returns the full pixel path around an obstacle wall
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testShortestPathJumpPointWithObstacles() {
+        Map map = new Map(5, 5, 0);
+        map.drawLine(new Index2D(2, 0), new Index2D(2, 3), 1);
+        Pixel2D start = new Index2D(0, 2);
+        Pixel2D end = new Index2D(4, 2);
+        Pixel2D[] path = map.shortestPathJumpPoint(start, end, 1, false);
+        assertNotNull(path);
+        assertEquals(9, path.length);
+        assertEquals(start, path[0]);
+        assertEquals(end, path[path.length - 1]);
+        for (int i = 1; i < path.length; i++) {
+            assertEquals(1.0, path[i].distance2D(path[i - 1]), 0.0);
+            assertNotEquals(1, map.getPixel(path[i]));
+        }
+    }
+
+    /**
+     * Test Jump Point Search on an open cyclic map (runs must stop after one lap) and with no path
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testShortestPathJumpPointCyclicAndBlocked() {
+        Map map = new Map(10, 10, 0);
+        assertEquals(3, map.shortestPathJumpPoint(new Index2D(0, 0), new Index2D(9, 9), -1, true).length);
+        assertEquals(11, map.shortestPathJumpPoint(new Index2D(2, 2), new Index2D(7, 7), -1, true).length);
+        map.drawRect(new Index2D(0, 5), new Index2D(9, 5), 1);
+        assertNull(map.shortestPathJumpPoint(new Index2D(0, 0), new Index2D(9, 9), 1, false));
+    }
+
+    /**
+     * Test that Jump Point Search matches the BFS path length on random maps
+     */
+    @Test
+    @Timeout(value = 2, unit = SECONDS)
+    void testShortestPathJumpPointMatchesBfs() {
+        Random rand = new Random(6);
+        for (int i = 0; i < 300; i++) {
+            Map map = randomMap(rand, 1 + rand.nextInt(20), 1 + rand.nextInt(20), 0.2);
+            boolean cyclic = rand.nextBoolean();
+            Pixel2D p1 = new Index2D(rand.nextInt(map.getWidth()), rand.nextInt(map.getHeight()));
+            Pixel2D p2 = new Index2D(rand.nextInt(map.getWidth()), rand.nextInt(map.getHeight()));
+            Pixel2D[] bfs = map.shortestPath(p1, p2, -1, cyclic);
+            Pixel2D[] jps = map.shortestPathJumpPoint(p1, p2, -1, cyclic);
+            if (bfs == null) {
+                assertNull(jps);
+            }
+            else {
+                assertEquals(bfs.length, jps.length);
+            }
+        }
+    }
+
+    // ==================== Connectivity Tests ====================
+
+    /**
+     * Test isConnected on separated regions, with and without cyclic wrap
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testIsConnected() {
+        Map map = new Map(6, 6, 0);
+        map.drawRect(new Index2D(0, 3), new Index2D(5, 3), 1);
+        assertTrue(map.isConnected(new Index2D(0, 0), new Index2D(5, 2), 1, false));
+        assertFalse(map.isConnected(new Index2D(0, 0), new Index2D(0, 5), 1, false));
+        // In cyclic mode the bottom row wraps to the top row
+        assertTrue(map.isConnected(new Index2D(0, 0), new Index2D(0, 5), 1, true));
+        // Obstacles and pixels outside the map are never connected
+        assertFalse(map.isConnected(new Index2D(0, 3), new Index2D(1, 3), 1, false));
+        assertFalse(map.isConnected(new Index2D(0, 0), new Index2D(6, 0), 1, false));
+    }
+
+    /**
+     * Test that the connectivity answers follow changes made by setPixel and the draw methods
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testIsConnectedAfterChanges() {
+        Map map = new Map(6, 6, 0);
+        Pixel2D a = new Index2D(0, 0);
+        Pixel2D b = new Index2D(5, 5);
+        assertTrue(map.isConnected(a, b, 1, false));
+        map.drawLine(new Index2D(3, 0), new Index2D(3, 5), 1);
+        assertFalse(map.isConnected(a, b, 1, false));
+        assertNull(map.shortestPath(a, b, 1, false));
+        map.setPixel(3, 4, 0);
+        assertTrue(map.isConnected(a, b, 1, false));
+        assertEquals(11, map.shortestPath(a, b, 1, false).length);
+        map.drawRect(new Index2D(0, 4), new Index2D(5, 4), 1);
+        assertFalse(map.isConnected(a, b, 1, false));
+    }
+
+    /**
+     * Test that path queries after an edit do not rebuild the component index, and still find that there is no path
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testPathQueriesSkipStaleComponentIndex() {
+        Map map = new Map(10, 10, 0);
+        map.drawLine(new Index2D(5, 0), new Index2D(5, 9), -1);
+        Pixel2D a = new Index2D(0, 0);
+        Pixel2D b = new Index2D(9, 9);
+        assertFalse(map.isConnected(a, b, -1, false));
+        assertNotNull(map.currentComponentIndex(-1, false));
+        map.setPixel(0, 9, 3);
+        assertNull(map.currentComponentIndex(-1, false));
+        assertNull(map.shortestPath(a, b, -1, false));
+        assertNull(map.shortestPathBidirectional(a, b, -1, false));
+        assertNull(map.shortestPathAStar(a, b, -1, false));
+        assertNull(map.shortestPathJumpPoint(a, b, -1, false));
+        assertNull(map.shortestPathEncoded(a, b, -1, false));
+        assertNull(map.shortestPathWeighted(a, b, -1, false));
+        assertNull(map.currentComponentIndex(-1, false));
+        assertEquals(10, map.shortestPath(a, new Index2D(0, 9), -1, false).length);
+    }
+
+    // ==================== Weighted Path Tests ====================
+
+    /**
+     * Test that the weighted path takes a cheap detour instead of crossing an expensive pixel
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testShortestPathWeightedDetour() {
+        int[][] arr = {
+                {0, 9, 1},
+                {1, 9, 1},
+                {1, 1, 1}
+        };
+        Map map = new Map(arr);
+        Pixel2D[] path = map.shortestPathWeighted(new Index2D(0, 0), new Index2D(2, 0), -1, false);
+        assertNotNull(path);
+        int cost = 0;
+        for (int i = 1; i < path.length; i++) {
+            cost += map.getPixel(path[i]);
+        }
+        assertEquals(6, cost);
+        assertEquals(7, path.length);
+        assertEquals(6, map.allDistanceWeighted(new Index2D(0, 0), -1, false).getPixel(2, 0));
+    }
+
+    /**
+     * Test weighted distances against a simple Bellman-Ford relaxation on random cost maps
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testAllDistanceWeightedRandom() {
+        Random rand = new Random(16);
+        for (int i = 0; i < 30; i++) {
+            int w = 1 + rand.nextInt(15);
+            int h = 1 + rand.nextInt(15);
+            boolean cyclic = rand.nextBoolean();
+            Map map = randomMap(rand, w, h, 0.2);
+            Pixel2D start = new Index2D(rand.nextInt(w), rand.nextInt(h));
+            map.setPixel(start, 0);
+            Map2D dist = map.allDistanceWeighted(start, -1, cyclic);
+            int[][] expected = new int[w][h];
+            for (int[] column : expected) {
+                Arrays.fill(column, Integer.MAX_VALUE);
+            }
+            expected[start.getX()][start.getY()] = 0;
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int x = 0; x < w; x++) {
+                    for (int y = 0; y < h; y++) {
+                        if (expected[x][y] == Integer.MAX_VALUE) {
+                            continue;
+                        }
+                        int[][] steps = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+                        for (int[] s : steps) {
+                            int nx = x + s[0];
+                            int ny = y + s[1];
+                            if (cyclic) {
+                                nx = (nx + w) % w;
+                                ny = (ny + h) % h;
+                            }
+                            if (nx < 0 || ny < 0 || nx >= w || ny >= h || map.getPixel(nx, ny) == -1) {
+                                continue;
+                            }
+                            int cost = expected[x][y] + map.getPixel(nx, ny);
+                            if (cost < expected[nx][ny]) {
+                                expected[nx][ny] = cost;
+                                changed = true;
+                            }
+                        }
+                    }
+                }
+            }
+            for (int x = 0; x < w; x++) {
+                for (int y = 0; y < h; y++) {
+                    int e = expected[x][y] == Integer.MAX_VALUE ? -1 : expected[x][y];
+                    assertEquals(e, dist.getPixel(x, y));
+                }
+            }
+            Pixel2D target = new Index2D(rand.nextInt(w), rand.nextInt(h));
+            Pixel2D[] path = map.shortestPathWeighted(start, target, -1, cyclic);
+            if (dist.getPixel(target) == -1) {
+                assertNull(path);
+            }
+            else {
+                int cost = 0;
+                for (int j = 1; j < path.length; j++) {
+                    cost += map.getPixel(path[j]);
+                }
+                assertEquals(dist.getPixel(target), cost);
+            }
+        }
+    }
+
+    /**
+     * Test that negative costs are rejected, and that large costs are handled (by the heap fallback)
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testWeightedCosts() {
+        Map map = new Map(4, 4, 1);
+        map.setPixel(2, 2, -5);
+        assertThrows(IllegalArgumentException.class, () -> map.allDistanceWeighted(new Index2D(0, 0), -1, false));
+        assertEquals(6, map.allDistanceWeighted(new Index2D(0, 0), -5, false).getPixel(3, 3));
+        map.setPixel(1, 0, 1000000);
+        map.setPixel(0, 1, 1000000);
+        assertEquals(1000001, map.allDistanceWeighted(new Index2D(0, 0), -5, false).getPixel(1, 1));
+    }
+
+    /**
+     * Test costs close to Integer.MAX_VALUE: path costs that fit are exact, and maps whose costs could overflow are rejected
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testWeightedLargeCosts() {
+        Map map = new Map(4, 1, 1000000000);
+        map.setPixel(0, 0, 0);
+        map.setPixel(3, 0, 147483647);
+        assertEquals(Integer.MAX_VALUE, map.allDistanceWeighted(new Index2D(0, 0), -1, false).getPixel(3, 0));
+        Pixel2D[] path = map.shortestPathWeighted(new Index2D(3, 0), new Index2D(0, 0), -1, false);
+        assertEquals(4, path.length);
+        map.setPixel(3, 0, 147483648);
+        assertThrows(IllegalArgumentException.class, () -> map.allDistanceWeighted(new Index2D(0, 0), -1, false));
+        assertThrows(IllegalArgumentException.class, () -> map.shortestPathWeighted(new Index2D(0, 0), new Index2D(3, 0), -1, false));
+        assertEquals(2000000000, map.allDistanceWeighted(new Index2D(0, 0), 147483648, false).getPixel(2, 0));
+    }
+
+    // ==================== Bounded AllDistance Tests ====================
+
+    /**
+     * Test that a bounded allDistance equals allDistance within the radius and -1 beyond it
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testAllDistanceWithinRadius() {
+        Random rand = new Random(20);
+        for (int i = 0; i < 60; i++) {
+            int w = 1 + rand.nextInt(30);
+            int h = 1 + rand.nextInt(30);
+            boolean cyclic = rand.nextBoolean();
+            Map map = randomMap(rand, w, h, 0.25);
+            Pixel2D start = new Index2D(rand.nextInt(w), rand.nextInt(h));
+            map.setPixel(start, 0);
+            int radius = rand.nextInt(12);
+            Map2D full = map.allDistance(start, -1, cyclic);
+            DistanceWindow window = map.allDistanceWithin(start, -1, cyclic, radius, null);
+            assertTrue(window.getWidth() <= Math.min(w, 2 * radius + 1));
+            assertTrue(window.getHeight() <= Math.min(h, 2 * radius + 1));
+            for (int x = 0; x < w; x++) {
+                for (int y = 0; y < h; y++) {
+                    int d = full.getPixel(x, y);
+                    assertEquals(d <= radius ? d : -1, window.getDistance(x, y));
+                }
+            }
+        }
+    }
+
+    /**
+     * Test the window of a small radius in the middle of a large map, and across the cyclic edges
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testAllDistanceWithinWindow() {
+        Map map = new Map(1000, 1000, 0);
+        DistanceWindow window = map.allDistanceWithin(new Index2D(500, 400), -1, false, 3, null);
+        assertEquals(497, window.getOriginX());
+        assertEquals(397, window.getOriginY());
+        assertEquals(7, window.getWidth());
+        assertEquals(7, window.toMap().getHeight());
+        assertEquals(3, window.getDistance(500, 403));
+        assertEquals(-1, window.getDistance(503, 403));
+        DistanceWindow wrapped = map.allDistanceWithin(new Index2D(0, 999), -1, true, 2, null);
+        assertEquals(998, wrapped.getOriginX());
+        assertEquals(997, wrapped.getOriginY());
+        assertEquals(2, wrapped.getDistance(999, 0));
+        assertEquals(2, wrapped.getDistance(1, 0));
+        assertEquals(-1, wrapped.getDistance(500, 500));
+        assertEquals(0, map.allDistanceWithin(new Index2D(-1, 0), -1, false, 5, null).getWidth());
+    }
+
+    /**
+     * Test the early exit once the targets are reached, with distances matching allDistance
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testAllDistanceWithinTargets() {
+        Map map = new Map(200, 200, 0);
+        Pixel2D start = new Index2D(100, 100);
+        Pixel2D[] targets = {new Index2D(102, 100), new Index2D(100, 97), new Index2D(-5, 0)};
+        DistanceWindow window = map.allDistanceWithin(start, -1, false, -1, targets);
+        assertEquals(2, window.getDistance(102, 100));
+        assertEquals(3, window.getDistance(100, 97));
+        assertTrue(window.getWidth() <= 7 && window.getHeight() <= 7);
+        assertEquals(-1, window.getDistance(0, 0));
+        // An unreachable target: everything within the radius is expanded
+        map.setPixel(150, 150, -1);
+        DistanceWindow all = map.allDistanceWithin(start, -1, false, 10, new Pixel2D[]{new Index2D(150, 150), new Index2D(150, 151)});
+        assertEquals(21, all.getWidth());
+        assertEquals(10, all.getDistance(110, 100));
+    }
+
+    // ==================== BFS Iterator Tests ====================
+
+    /**
+     * Test that the iterator visits every reachable pixel once, in increasing order, with the allDistance distances
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testBfsIteratorMatchesAllDistance() {
+        Random rand = new Random(21);
+        for (int i = 0; i < 60; i++) {
+            int w = 1 + rand.nextInt(40);
+            int h = 1 + rand.nextInt(40);
+            boolean cyclic = rand.nextBoolean();
+            Map map = randomMap(rand, w, h, 0.3);
+            Pixel2D start = new Index2D(rand.nextInt(w), rand.nextInt(h));
+            map.setPixel(start, 0);
+            Map2D expected = map.allDistance(start, -1, cyclic);
+            int[][] seen = new int[w][h];
+            int reachable = 0;
+            for (int x = 0; x < w; x++) {
+                for (int y = 0; y < h; y++) {
+                    seen[x][y] = -1;
+                    if (expected.getPixel(x, y) >= 0) {
+                        reachable++;
+                    }
+                }
+            }
+            BfsIterator it = map.bfsIterator(start, -1, cyclic);
+            int last = 0;
+            while (it.hasNext()) {
+                long v = it.nextLong();
+                int x = it.getX(v);
+                int y = it.getY(v);
+                int d = BfsIterator.getDistance(v);
+                assertTrue(d >= last);
+                assertEquals(-1, seen[x][y]);
+                assertEquals(expected.getPixel(x, y), d);
+                seen[x][y] = d;
+                last = d;
+            }
+            assertEquals(reachable, it.visitedCount());
+        }
+    }
+
+    /**
+     * Test stopping early: the K nearest pixels with a stream and the first pixel matching a predicate
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testBfsIteratorEarlyStop() {
+        Map map = new Map(2000, 2000, 0);
+        map.setPixel(1003, 1000, 7);
+        BfsIterator it = map.bfsIterator(new Index2D(1000, 1000), -1, false);
+        long found = it.stream().filter(v -> map.getPixel(it.getPixel(v)) == 7).findFirst().orElseThrow();
+        assertEquals(3, BfsIterator.getDistance(found));
+        assertTrue(it.visitedCount() < 30);
+        long[] nearest = map.bfsIterator(new Index2D(0, 0), -1, true).stream().limit(5).toArray();
+        assertEquals(0, BfsIterator.getDistance(nearest[0]));
+        for (int i = 1; i < 5; i++) {
+            assertEquals(1, BfsIterator.getDistance(nearest[i]));
+        }
+        assertFalse(map.bfsIterator(new Index2D(-1, 0), -1, false).hasNext());
+    }
+
+    /**
+     * Test that changing the map during the traversal is detected
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testBfsIteratorFailFast() {
+        Map map = new Map(10, 10, 0);
+        BfsIterator it = map.bfsIterator(new Index2D(5, 5), -1, false);
+        it.nextLong();
+        map.setPixel(0, 0, -1);
+        assertThrows(java.util.ConcurrentModificationException.class, it::nextLong);
+    }
+
+    // ==================== Batch Path Tests ====================
+
+    /**
+     * Test that a batch with shared sources and mixed settings matches shortestPath query by query
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testShortestPathsMatchesShortestPath() {
+        Random rand = new Random(23);
+        for (int i = 0; i < 20; i++) {
+            int w = 1 + rand.nextInt(40);
+            int h = 1 + rand.nextInt(40);
+            Map map = randomMap(rand, w, h, 0.3);
+            Pixel2D[] sources = new Pixel2D[3];
+            for (int j = 0; j < sources.length; j++) {
+                sources[j] = new Index2D(rand.nextInt(w), rand.nextInt(h));
+            }
+            PathQuery[] queries = new PathQuery[50];
+            for (int j = 0; j < queries.length; j++) {
+                Pixel2D p1 = sources[rand.nextInt(sources.length)];
+                Pixel2D p2 = new Index2D(rand.nextInt(w + 2) - 1, rand.nextInt(h));
+                queries[j] = new PathQuery(p1, p2, rand.nextBoolean() ? -1 : 0, rand.nextBoolean());
+            }
+            Pixel2D[][] paths = map.shortestPaths(queries);
+            assertEquals(queries.length, paths.length);
+            for (int j = 0; j < queries.length; j++) {
+                PathQuery q = queries[j];
+                Pixel2D[] expected = map.shortestPath(q.getP1(), q.getP2(), q.getObsColor(), q.isCyclic());
+                if (expected == null) {
+                    assertNull(paths[j]);
+                    continue;
+                }
+                assertValidPath(map, paths[j], q.getP1(), q.getP2(), q.getObsColor(), q.isCyclic());
+                assertEquals(expected.length, paths[j].length);
+            }
+        }
+    }
+
+    /**
+     * Test a large batch from one source on a bigger map, and an empty batch
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testShortestPathsSharedSource() {
+        Map map = new Map(300, 300, 0);
+        map.drawRect(new Index2D(100, 0), new Index2D(101, 250), -1);
+        PathQuery[] queries = new PathQuery[2000];
+        for (int j = 0; j < queries.length; j++) {
+            queries[j] = new PathQuery(new Index2D(0, 0), new Index2D(150 + j % 100, j / 20), -1, false);
+        }
+        Pixel2D[][] paths = map.shortestPaths(queries);
+        Map2D dist = map.allDistance(new Index2D(0, 0), -1, false);
+        for (int j = 0; j < queries.length; j++) {
+            assertEquals(dist.getPixel(queries[j].getP2()) + 1, paths[j].length);
+        }
+        // Around the wall: 251 steps up, 200 right and 249 down
+        assertEquals(701, paths[50].length);
+        assertEquals(0, map.shortestPaths(new PathQuery[0]).length);
+    }
+
+    /**
+     * Test a batch with more (obsColor, cyclic) pairs than the map caches component indices for
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testShortestPathsManyObstacleColors() {
+        Random rand = new Random(26);
+        Map map = new Map(30, 30, 0);
+        for (int j = 0; j < 400; j++) {
+            map.setPixel(rand.nextInt(30), rand.nextInt(30), rand.nextInt(8));
+        }
+        PathQuery[] queries = new PathQuery[200];
+        for (int j = 0; j < queries.length; j++) {
+            Pixel2D p1 = new Index2D(rand.nextInt(30), rand.nextInt(30));
+            Pixel2D p2 = new Index2D(rand.nextInt(30), rand.nextInt(30));
+            queries[j] = new PathQuery(p1, p2, 1 + rand.nextInt(7), rand.nextBoolean());
+        }
+        Pixel2D[][] paths = map.shortestPaths(queries);
+        for (int j = 0; j < queries.length; j++) {
+            PathQuery q = queries[j];
+            Pixel2D[] expected = map.shortestPath(q.getP1(), q.getP2(), q.getObsColor(), q.isCyclic());
+            if (expected == null) {
+                assertNull(paths[j]);
+            }
+            else {
+                assertEquals(expected.length, paths[j].length);
+            }
+        }
+    }
+
+    /**
+     * Test that a batch after an edit answers one-pixel and unreachable queries without building the component index
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testShortestPathsSkipStaleComponentIndex() {
+        Map map = new Map(20, 20, 0);
+        map.drawRect(new Index2D(10, 0), new Index2D(10, 19), -1);
+        PathQuery[] queries = {
+                new PathQuery(new Index2D(3, 3), new Index2D(3, 3), -1, false),
+                new PathQuery(new Index2D(3, 3), new Index2D(15, 3), -1, false),
+                new PathQuery(new Index2D(3, 3), new Index2D(15, 3), -1, false),
+                new PathQuery(new Index2D(3, 3), new Index2D(5, 3), -1, false),
+                new PathQuery(new Index2D(15, 3), new Index2D(3, 3), -1, true)
+        };
+        Pixel2D[][] paths = map.shortestPaths(queries);
+        assertEquals(1, paths[0].length);
+        assertEquals(new Index2D(3, 3), paths[0][0]);
+        assertNull(paths[1]);
+        assertNull(paths[2]);
+        assertEquals(3, paths[3].length);
+        assertEquals(9, paths[4].length);
+        assertNull(map.currentComponentIndex(-1, false));
+        assertNull(map.currentComponentIndex(-1, true));
+    }
+
+    // ==================== Encoded Path Tests ====================
+
+    /**
+     * Test that the encoded path has the pixels of shortestPath, by index, by iteration and as an array
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testShortestPathEncodedMatchesShortestPath() {
+        Random rand = new Random(24);
+        for (int i = 0; i < 60; i++) {
+            int w = 1 + rand.nextInt(50);
+            int h = 1 + rand.nextInt(50);
+            boolean cyclic = rand.nextBoolean();
+            Map map = randomMap(rand, w, h, 0.2);
+            Pixel2D p1 = new Index2D(rand.nextInt(w), rand.nextInt(h));
+            Pixel2D p2 = new Index2D(rand.nextInt(w), rand.nextInt(h));
+            Pixel2D[] expected = map.shortestPath(p1, p2, -1, cyclic);
+            EncodedPath path = map.shortestPathEncoded(p1, p2, -1, cyclic);
+            if (expected == null) {
+                assertNull(path);
+                continue;
+            }
+            assertEquals(expected.length, path.size());
+            assertArrayEquals(expected, path.toArray());
+            java.util.PrimitiveIterator.OfInt cells = path.cells();
+            for (int k = 0; k < expected.length; k++) {
+                assertEquals(expected[k], path.get(k));
+                assertEquals(expected[k].getX(), path.getX(k));
+                assertEquals(expected[k].getY(), path.getY(k));
+                assertEquals(expected[k].getY() * w + expected[k].getX(), cells.nextInt());
+            }
+            assertFalse(cells.hasNext());
+            assertArrayEquals(expected, new EncodedPath(expected, w, h).toArray());
+        }
+    }
+
+    /**
+     * Test a long path across checkpoints, invalid indices and invalid paths
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testEncodedPathEdgeCases() {
+        Map map = new Map(500, 3, 0);
+        EncodedPath path = map.shortestPathEncoded(new Index2D(0, 1), new Index2D(499, 1), -1, false);
+        assertEquals(500, path.size());
+        assertEquals(new Index2D(31, 1), path.get(31));
+        assertEquals(new Index2D(32, 1), path.get(32));
+        assertEquals(new Index2D(499, 1), path.get(499));
+        assertThrows(IndexOutOfBoundsException.class, () -> path.get(500));
+        assertEquals(1, map.shortestPathEncoded(new Index2D(2, 2), new Index2D(2, 2), -1, false).size());
+        // Wrapping steps are valid, jumps are not
+        assertEquals(2, new EncodedPath(new Pixel2D[]{new Index2D(0, 0), new Index2D(499, 0)}, 500, 3).size());
+        assertThrows(IllegalArgumentException.class,
+                () -> new EncodedPath(new Pixel2D[]{new Index2D(0, 0), new Index2D(2, 0)}, 500, 3));
+        assertThrows(IllegalArgumentException.class, () -> new EncodedPath(new Pixel2D[0], 500, 3));
+    }
+
+    // ==================== Distance Transform Tests ====================
+
+    /**
+     * Test that the distance transform equals the brute-force nearest distance on random maps
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testDistanceTransformMatchesBruteForce() {
+        Random rand = new Random(25);
+        for (int i = 0; i < 40; i++) {
+            int w = 1 + rand.nextInt(30);
+            int h = 1 + rand.nextInt(30);
+            Map map = randomMap(rand, w, h, rand.nextDouble() * 0.2);
+            DistanceTransform dt = map.distanceTransform(-1);
+            float[][] distances = dt.toFloatArray();
+            Map2D squared = dt.toMap();
+            for (int x = 0; x < w; x++) {
+                for (int y = 0; y < h; y++) {
+                    int best = -1;
+                    for (int fx = 0; fx < w; fx++) {
+                        for (int fy = 0; fy < h; fy++) {
+                            int d = (x - fx) * (x - fx) + (y - fy) * (y - fy);
+                            if (map.getPixel(fx, fy) == -1 && (best < 0 || d < best)) {
+                                best = d;
+                            }
+                        }
+                    }
+                    Pixel2D p = new Index2D(x, y);
+                    assertEquals(best, dt.getSquaredDistance(p));
+                    assertEquals(best, squared.getPixel(x, y));
+                    assertEquals(best < 0 ? -1 : (float) Math.sqrt(best), dt.getDistance(p));
+                    assertEquals(dt.getDistance(p), distances[y][x]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test the distance transform of a single feature pixel on a map large enough for the parallel passes
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testDistanceTransformLarge() {
+        Map map = new Map(400, 300, 0);
+        map.setPixel(10, 20, 5);
+        DistanceTransform dt = map.distanceTransform(5);
+        assertEquals(0, dt.getSquaredDistance(new Index2D(10, 20)));
+        assertEquals(389 * 389 + 279 * 279, dt.getSquaredDistance(new Index2D(399, 299)));
+        assertEquals((float) new Index2D(10, 20).distance2D(new Index2D(3, 200)), dt.getDistance(new Index2D(3, 200)), 1e-4);
+        assertEquals(-1, map.distanceTransform(7).getSquaredDistance(new Index2D(0, 0)));
+    }
+
+    /**
+     * Test that the distance transform returns -1 for pixels outside the map
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testDistanceTransformOutside() {
+        Map map = new Map(4, 3, 0);
+        map.setPixel(1, 1, 5);
+        DistanceTransform dt = map.distanceTransform(5);
+        assertEquals(-1, dt.getSquaredDistance(new Index2D(-1, 0)));
+        assertEquals(-1, dt.getSquaredDistance(new Index2D(0, -1)));
+        assertEquals(-1, dt.getSquaredDistance(new Index2D(4, 0)));
+        assertEquals(-1, dt.getSquaredDistance(new Index2D(0, 3)));
+        assertEquals(-1f, dt.getDistance(new Index2D(4, 2)));
+        assertEquals(5, dt.getSquaredDistance(new Index2D(3, 2)));
+    }
+
+    /**
+     * Test that the distance transform rejects maps whose squared distances would overflow an int
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testDistanceTransformTooLarge() {
+        assertThrows(IllegalArgumentException.class, () -> new Map(46400, 1, 0).distanceTransform(0));
+        assertThrows(IllegalArgumentException.class, () -> new Map(1, 46400, 0).distanceTransform(0));
+        Map row = new Map(46300, 1, 0);
+        row.setPixel(0, 0, 1);
+        assertEquals(46299 * 46299, row.distanceTransform(1).getSquaredDistance(new Index2D(46299, 0)));
+    }
+
+    // ==================== Passability Mask Tests ====================
+
+    /**
+     * Test that the cached passability masks follow every kind of change of the map
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testPassabilityMaskUpdates() {
+        Random rand = new Random(15);
+        Map map = randomMap(rand, 23, 17, 0.3);
+        for (int i = 0; i < 300; i++) {
+            int w = map.getWidth();
+            int h = map.getHeight();
+            Pixel2D a = new Index2D(rand.nextInt(w), rand.nextInt(h));
+            Pixel2D b = new Index2D(rand.nextInt(w), rand.nextInt(h));
+            int color = rand.nextInt(3) - 1;
+            switch (rand.nextInt(9)) {
+                case 0 -> map.setPixel(a, color);
+                case 1 -> map.drawRect(a, b, color);
+                case 2 -> map.drawCircle(a, rand.nextDouble() * 6, color);
+                case 3 -> map.drawLine(a, b, color);
+                case 4 -> map.fill(a, color, rand.nextBoolean());
+                case 5 -> map.mul(rand.nextBoolean() ? 1 : -1);
+                case 6 -> map.addMap2D(new Map(w, h, rand.nextInt(3) - 1));
+                case 7 -> map.rescale(w > 30 ? 0.7 : 1.2, h > 30 ? 0.7 : 1.2);
+                default -> {
+                    if (rand.nextInt(10) == 0) {
+                        map.init(1 + rand.nextInt(30), 1 + rand.nextInt(30), color);
+                    }
+                }
+            }
+            for (int obsColor = -1; obsColor <= 1; obsColor++) {
+                PassabilityMask mask = map.passabilityMask(obsColor);
+                for (int cell = 0; cell < map.getWidth() * map.getHeight(); cell++) {
+                    assertEquals(map.pixelAt(cell) != obsColor, mask.passable(cell));
+                }
+            }
+        }
+    }
+
     // ==================== AllDistance Tests ====================
 
     /**
@@ -1083,6 +2057,272 @@ class MapTest {
         assertEquals(-1, distances.getPixel(new Index2D(3, 3)));  // Isolated
     }
 
+    // ==================== Parallel AllDistance Tests ====================
+
+    /**
+     * Test allDistanceParallel against allDistance on a map above the sequential threshold
+     */
+    @Test
+    @Timeout(value = 2, unit = SECONDS)
+    void testAllDistanceParallelLargeMap() {
+        Map map = randomMap(new Random(11), 400, 300, 0.2);
+        Pixel2D start = new Index2D(200, 150);
+        map.setPixel(start, 0);
+        assertTrue(map.allDistanceParallel(start, -1, false).equals(map.allDistance(start, -1, false)));
+        assertTrue(map.allDistanceParallel(start, -1, true).equals(map.allDistance(start, -1, true)));
+    }
+
+    /**
+     * Test the parallel BFS with tiny chunks (so every level is split) on random maps
+     */
+    @Test
+    @Timeout(value = 2, unit = SECONDS)
+    void testParallelBfsSmallGrain() {
+        Random rand = new Random(12);
+        for (int i = 0; i < 40; i++) {
+            int w = 1 + rand.nextInt(40);
+            int h = 1 + rand.nextInt(40);
+            boolean cyclic = rand.nextBoolean();
+            Map map = randomMap(rand, w, h, 0.3);
+            Pixel2D start = new Index2D(rand.nextInt(w), rand.nextInt(h));
+            map.setPixel(start, 0);
+            int[] data = new int[w * h];
+            Arrays.fill(data, -1);
+            new ParallelBfs(map, -1, cyclic, 1 + rand.nextInt(4)).run(start.getY() * w + start.getX(), data);
+            Map2D expected = map.allDistance(start, -1, cyclic);
+            for (int j = 0; j < data.length; j++) {
+                assertEquals(expected.getPixel(j % w, j / w), data[j]);
+            }
+        }
+    }
+
+    /**
+     * Test allDistanceParallel with an obstacle or outside start pixel
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testAllDistanceParallelInvalidStart() {
+        Map map = new Map(300, 300, 0);
+        map.setPixel(5, 5, -1);
+        assertEquals(-1, map.allDistanceParallel(new Index2D(5, 5), -1, false).getPixel(0, 0));
+        assertEquals(-1, map.allDistanceParallel(new Index2D(300, 5), -1, false).getPixel(0, 0));
+    }
+
+    // ==================== Direction-Optimizing AllDistance Tests ====================
+
+    /**
+     * Test allDistanceDirectionOptimizing against allDistance on random maps (both directions are used)
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testAllDistanceDirectionOptimizingRandom() {
+        Random rand = new Random(13);
+        for (int i = 0; i < 60; i++) {
+            int w = 1 + rand.nextInt(70);
+            int h = 1 + rand.nextInt(70);
+            boolean cyclic = rand.nextBoolean();
+            Map map = randomMap(rand, w, h, rand.nextDouble() * 0.4);
+            Pixel2D start = new Index2D(rand.nextInt(w), rand.nextInt(h));
+            map.setPixel(start, 0);
+            assertTrue(map.allDistance(start, -1, cyclic).equals(map.allDistanceDirectionOptimizing(start, -1, cyclic)));
+        }
+    }
+
+    /**
+     * Test allDistanceDirectionOptimizing on a large open map and with an invalid start
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testAllDistanceDirectionOptimizingOpenMap() {
+        Map map = new Map(500, 400, 0);
+        Map2D dist = map.allDistanceDirectionOptimizing(new Index2D(0, 0), -1, false);
+        assertEquals(0, dist.getPixel(0, 0));
+        assertEquals(499 + 399, dist.getPixel(499, 399));
+        assertEquals(250 + 200, map.allDistanceDirectionOptimizing(new Index2D(0, 0), -1, true).getPixel(250, 200));
+        map.setPixel(3, 3, -1);
+        assertEquals(-1, map.allDistanceDirectionOptimizing(new Index2D(3, 3), -1, false).getPixel(0, 0));
+    }
+
+    // ==================== Bit-Parallel AllDistance Tests ====================
+
+    /**
+     * Test allDistanceBitParallel against allDistance on random maps, including 1-pixel wide and high maps
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testAllDistanceBitParallelRandom() {
+        Random rand = new Random(14);
+        for (int i = 0; i < 80; i++) {
+            int w = 1 + rand.nextInt(i < 20 ? 3 : 90);
+            int h = 1 + rand.nextInt(70);
+            boolean cyclic = rand.nextBoolean();
+            Map map = randomMap(rand, w, h, rand.nextDouble() * 0.4);
+            Pixel2D start = new Index2D(rand.nextInt(w), rand.nextInt(h));
+            map.setPixel(start, 0);
+            assertTrue(map.allDistance(start, -1, cyclic).equals(map.allDistanceBitParallel(start, -1, cyclic)));
+        }
+    }
+
+    /**
+     * Test allDistanceBitParallel across the wrap-around edges, and with an obstacle start
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testAllDistanceBitParallelCyclic() {
+        Map map = new Map(64, 3, 0);
+        Map2D dist = map.allDistanceBitParallel(new Index2D(0, 0), -1, true);
+        assertEquals(1, dist.getPixel(63, 0));
+        assertEquals(1, dist.getPixel(0, 2));
+        assertEquals(2, dist.getPixel(63, 2));
+        assertEquals(33, dist.getPixel(32, 1));
+        map.setPixel(0, 0, -1);
+        assertEquals(-1, map.allDistanceBitParallel(new Index2D(0, 0), -1, true).getPixel(1, 0));
+    }
+
+    // ==================== Multi-Source AllDistance Tests ====================
+
+    /**
+     * Test the distances and nearest sources of two sources on an open row
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testAllDistanceMultiSourceRow() {
+        Map map = new Map(10, 1, 0);
+        MultiSourceDistance result = map.allDistance(new Pixel2D[]{new Index2D(1, 0), new Index2D(8, 0)}, -1, false);
+        int[] dist = {1, 0, 1, 2, 3, 3, 2, 1, 0, 1};
+        int[] nearest = {0, 0, 0, 0, 0, 1, 1, 1, 1, 1};
+        for (int x = 0; x < 10; x++) {
+            assertEquals(dist[x], result.getDistances().getPixel(x, 0));
+            assertEquals(nearest[x], result.getNearestSource().getPixel(x, 0));
+        }
+    }
+
+    /**
+     * Test that invalid sources are ignored and unreachable pixels are -1 in both maps
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testAllDistanceMultiSourceInvalid() {
+        Map map = new Map(5, 5, 0);
+        map.drawRect(new Index2D(2, 0), new Index2D(2, 4), -1);
+        MultiSourceDistance result = map.allDistance(new Pixel2D[]{new Index2D(9, 9), new Index2D(2, 2), new Index2D(0, 0)}, -1, false);
+        assertEquals(0, result.getDistances().getPixel(0, 0));
+        assertEquals(2, result.getNearestSource().getPixel(1, 4));
+        assertEquals(-1, result.getDistances().getPixel(4, 4));
+        assertEquals(-1, result.getNearestSource().getPixel(4, 4));
+        assertEquals(-1, result.getNearestSource().getPixel(2, 2));
+        MultiSourceDistance none = map.allDistance(new Pixel2D[0], -1, false);
+        assertEquals(-1, none.getDistances().getPixel(0, 0));
+    }
+
+    /**
+     * Test on random maps against the element-wise minimum of single-source allDistance maps,
+     * and that every pixel is at the labeled source's distance
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testAllDistanceMultiSourceRandom() {
+        Random rand = new Random(10);
+        for (int i = 0; i < 30; i++) {
+            int w = 1 + rand.nextInt(20);
+            int h = 1 + rand.nextInt(20);
+            boolean cyclic = rand.nextBoolean();
+            Map map = randomMap(rand, w, h, 0.25);
+            Pixel2D[] sources = new Pixel2D[1 + rand.nextInt(5)];
+            Map2D[] single = new Map2D[sources.length];
+            for (int s = 0; s < sources.length; s++) {
+                sources[s] = new Index2D(rand.nextInt(w), rand.nextInt(h));
+                single[s] = map.allDistance(sources[s], -1, cyclic);
+            }
+            MultiSourceDistance result = map.allDistance(sources, -1, cyclic);
+            for (int x = 0; x < w; x++) {
+                for (int y = 0; y < h; y++) {
+                    int min = -1;
+                    for (Map2D d : single) {
+                        int v = d.getPixel(x, y);
+                        if (v != -1 && (min == -1 || v < min)) {
+                            min = v;
+                        }
+                    }
+                    assertEquals(min, result.getDistances().getPixel(x, y));
+                    int label = result.getNearestSource().getPixel(x, y);
+                    assertEquals(min == -1 ? -1 : min, label == -1 ? -1 : single[label].getPixel(x, y));
+                }
+            }
+        }
+    }
+
+    // ==================== AllDistance Cache Tests ====================
+
+    /**
+     * Test that repeated allDistanceCached calls return the same cached map with the allDistance values
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testAllDistanceCachedHit() {
+        Map map = randomMap(new Random(9), 20, 15, 0.2);
+        Pixel2D start = new Index2D(3, 4);
+        map.setPixel(start, 0);
+        Map2D cached = map.allDistanceCached(start, -1, true);
+        assertSame(cached, map.allDistanceCached(start, -1, true));
+        assertTrue(cached.equals(map.allDistance(start, -1, true)));
+        assertNotSame(cached, map.allDistanceCached(start, -1, false));
+        assertNotSame(cached, map.allDistanceCached(start, 2, true));
+    }
+
+    /**
+     * Test that a change of the map invalidates the cached distances
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testAllDistanceCachedInvalidation() {
+        Map map = new Map(10, 10, 0);
+        Pixel2D start = new Index2D(0, 0);
+        Map2D before = map.allDistanceCached(start, -1, false);
+        assertEquals(18, before.getPixel(9, 9));
+        map.drawRect(new Index2D(5, 0), new Index2D(5, 8), -1);
+        Map2D after = map.allDistanceCached(start, -1, false);
+        assertNotSame(before, after);
+        assertEquals(27, after.getPixel(9, 0));
+        assertEquals(18, before.getPixel(9, 9));
+    }
+
+    /**
+     * Test that the cached maps cannot be changed
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testAllDistanceCachedReadOnly() {
+        Map map = new Map(5, 5, 0);
+        Map2D cached = map.allDistanceCached(new Index2D(2, 2), -1, false);
+        assertThrows(UnsupportedOperationException.class, () -> cached.setPixel(0, 0, 7));
+        assertThrows(UnsupportedOperationException.class, () -> cached.fill(new Index2D(0, 0), 7, false));
+        assertThrows(UnsupportedOperationException.class, () -> cached.init(3, 3, 0));
+        assertThrows(UnsupportedOperationException.class, () -> cached.mul(2));
+        cached.getMap()[0][0] = 7;
+        assertEquals(4, cached.getPixel(0, 0));
+    }
+
+    /**
+     * Test the memory budget: least recently used maps are evicted, a budget of 0 disables the cache
+     */
+    @Test
+    @Timeout(value = 1, unit = SECONDS)
+    void testAllDistanceCacheBudget() {
+        Map map = new Map(10, 10, 0);
+        // Room for two 10x10 distance maps (400 bytes of pixels each, plus overhead)
+        map.setDistanceCacheBudget(1100);
+        Map2D a = map.allDistanceCached(new Index2D(0, 0), -1, false);
+        Map2D b = map.allDistanceCached(new Index2D(1, 0), -1, false);
+        assertSame(a, map.allDistanceCached(new Index2D(0, 0), -1, false));
+        map.allDistanceCached(new Index2D(2, 0), -1, false);
+        assertSame(a, map.allDistanceCached(new Index2D(0, 0), -1, false));
+        assertNotSame(b, map.allDistanceCached(new Index2D(1, 0), -1, false));
+        map.setDistanceCacheBudget(0);
+        assertNotSame(map.allDistanceCached(new Index2D(0, 0), -1, false), map.allDistanceCached(new Index2D(0, 0), -1, false));
+        assertThrows(IllegalArgumentException.class, () -> map.setDistanceCacheBudget(-1));
+    }
+
     // ==================== Edge Case Tests ====================
 
     /**
@@ -1119,4 +2359,82 @@ class MapTest {
         // Operations should complete without error
         assertNotNull(map.getMap());
     }
+
+    // ==================== Helpers ====================
+
+    /**
+     * Creates a random w*h map with values 0-4, where about the given fraction of pixels are obstacles (-1)
+     */
+    private static Map randomMap(Random rand, int w, int h, double obstacles) {
+        Map map = new Map(w, h, 0);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                map.setPixel(x, y, rand.nextDouble() < obstacles ? -1 : rand.nextInt(5));
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Creates a random maze: walls on the even rows and columns, carved by a randomized depth-first search
+     */
+    static Map maze(Random rand, int w, int h) {
+        Map map = new Map(w, h, -1);
+        int cw = (w + 1) / 2;
+        int ch = (h + 1) / 2;
+        boolean[] seen = new boolean[cw * ch];
+        int[] stack = new int[cw * ch];
+        int top = 0;
+        stack[top++] = 0;
+        seen[0] = true;
+        map.setPixel(0, 0, 0);
+        int[][] steps = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+        while (top > 0) {
+            int c = stack[top - 1];
+            int cx = c % cw;
+            int cy = c / cw;
+            int[] options = new int[4];
+            int count = 0;
+            for (int s = 0; s < 4; s++) {
+                int nx = cx + steps[s][0];
+                int ny = cy + steps[s][1];
+                if (nx >= 0 && ny >= 0 && nx < cw && ny < ch && !seen[ny * cw + nx]) {
+                    options[count++] = s;
+                }
+            }
+            if (count == 0) {
+                top--;
+                continue;
+            }
+            int s = options[rand.nextInt(count)];
+            int nx = cx + steps[s][0];
+            int ny = cy + steps[s][1];
+            seen[ny * cw + nx] = true;
+            map.setPixel(2 * cx + steps[s][0], 2 * cy + steps[s][1], 0);
+            map.setPixel(2 * nx, 2 * ny, 0);
+            stack[top++] = ny * cw + nx;
+        }
+        return map;
+    }
+
+    /**
+     * Asserts that a path goes from p1 to p2 in single steps (wrapping around the edges if cyclic) and avoids obsColor
+     */
+    static void assertValidPath(Map map, Pixel2D[] path, Pixel2D p1, Pixel2D p2, int obsColor, boolean cyclic) {
+        assertNotNull(path);
+        assertEquals(p1, path[0]);
+        assertEquals(p2, path[path.length - 1]);
+        for (int i = 0; i < path.length; i++) {
+            assertNotEquals(obsColor, map.getPixel(path[i]));
+            if (i > 0) {
+                int dx = Math.abs(path[i].getX() - path[i - 1].getX());
+                int dy = Math.abs(path[i].getY() - path[i - 1].getY());
+                if (cyclic) {
+                    dx = Math.min(dx, map.getWidth() - dx);
+                    dy = Math.min(dy, map.getHeight() - dy);
+                }
+                assertEquals(1, dx + dy);
+            }
+        }
+    }
 }
@@ -0,0 +1,39 @@
+package ex2;
+
+/**
+ * The result of a multi-source allDistance (see {@link Map#allDistance(Pixel2D[], int, boolean)}):
+ * the distance of every pixel from its nearest source, and which source that is.
+ * The nearest source map is a discrete Voronoi partition of the reachable pixels.
+ */
+public class MultiSourceDistance {
+    /** The distance of every pixel from the nearest source (-1 if unreachable). */
+    private final Map2D distances;
+    /** The index (in the sources array) of the nearest source of every pixel (-1 if unreachable). */
+    private final Map2D nearestSource;
+
+    /**
+     * Constructs a result from its two maps.
+     * @param distances the distance of every pixel from the nearest source
+     * @param nearestSource the index of the nearest source of every pixel
+     */
+    MultiSourceDistance(Map2D distances, Map2D nearestSource) {
+        this.distances = distances;
+        this.nearestSource = nearestSource;
+    }
+
+    /**
+     * @return a map where each pixel contains its shortest distance from any of the sources, or -1 if unreachable
+     */
+    public Map2D getDistances() {
+        return distances;
+    }
+
+    /**
+     * Ties (pixels at the same distance from several sources) are broken in favor of the source
+     * whose BFS wave reached the pixel first.
+     * @return a map where each pixel contains the index of its nearest source in the sources array, or -1 if unreachable
+     */
+    public Map2D getNearestSource() {
+        return nearestSource;
+    }
+}
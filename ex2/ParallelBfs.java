@@ -0,0 +1,158 @@
+package ex2;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A level-synchronous parallel BFS over a Map, used by {@link Map#allDistanceParallel(Pixel2D, int, boolean)}.
+ * Every level expands the current frontier in chunks of a fixed number of cells on the common fork-join pool;
+ * each chunk writes the cells it discovers into its own buffer, and the buffers are concatenated into the
+ * next frontier. Levels whose frontier fits in a single chunk are expanded on the calling thread.
+ * <p>
+ * The visited marks are the distances themselves, written without synchronization: within a level every
+ * writer stores the same value (the level + 1), so a race can only make two chunks discover the same cell.
+ * Such a cell appears twice in the next frontier, which costs a little work but never changes a distance.
+ * The distances are therefore identical to the ones of the sequential BFS.
+ */
+class ParallelBfs {
+    /** The number of cells below which a map is traversed by the sequential BFS. */
+    static final int SEQUENTIAL_THRESHOLD = 1 << 16;
+    /** The default number of frontier cells expanded by one task. */
+    static final int DEFAULT_GRAIN = 1024;
+
+    /** The traversed map. */
+    private final Map map;
+    /** The passable cells of the map. */
+    private final long[] free;
+    /** If true, the map edges wrap around. */
+    private final boolean cyclic;
+    /** The number of frontier cells expanded by one task. */
+    private final int grain;
+
+    /** Per-cell distance, -1 marks unvisited cells. */
+    private int[] dist;
+    /** The cells of the current level. */
+    private int[] frontier;
+    /** The number of cells in the frontier. */
+    private int size;
+    /** The distance of the cells discovered in the current level. */
+    private int nextDist;
+    /** Per-chunk buffers of the discovered cells (4 slots per frontier cell). */
+    private int[][] found;
+    /** Per-chunk number of discovered cells. */
+    private int[] foundCount;
+
+    /**
+     * Constructs a parallel BFS.
+     * @param map the map to traverse
+     * @param obsColor the color value representing obstacles
+     * @param cyclic if true, the map edges wrap around
+     * @param grain the number of frontier cells expanded by one task
+     */
+    ParallelBfs(Map map, int obsColor, boolean cyclic, int grain) {
+        this.map = map;
+        this.free = map.passabilityMask(obsColor).words();
+        this.cyclic = cyclic;
+        this.grain = grain;
+    }
+
+    /**
+     * Computes the distances of all the cells reachable from start.
+     * @param start the packed index of a passable start cell
+     * @param dist per-cell distance, all -1 on entry
+     */
+    void run(int start, int[] dist) {
+        this.dist = dist;
+        frontier = new int[grain];
+        found = new int[0][];
+        foundCount = new int[0];
+        dist[start] = 0;
+        frontier[0] = start;
+        size = 1;
+        while (size > 0) {
+            nextDist++;
+            int chunks = (size + grain - 1) / grain;
+            if (chunks > found.length) {
+                int[][] grown = new int[Math.max(chunks, found.length * 2)][];
+                System.arraycopy(found, 0, grown, 0, found.length);
+                found = grown;
+                foundCount = new int[grown.length];
+            }
+            if (chunks == 1) {
+                expand(0);
+            }
+            else {
+                ForkJoinPool.commonPool().invoke(new Expand(0, chunks));
+            }
+            // Concatenate the chunk buffers into the next frontier
+            int total = 0;
+            for (int c = 0; c < chunks; c++) {
+                total += foundCount[c];
+            }
+            if (total > frontier.length) {
+                frontier = new int[Math.max(total, frontier.length * 2)];
+            }
+            size = 0;
+            for (int c = 0; c < chunks; c++) {
+                System.arraycopy(found[c], 0, frontier, size, foundCount[c]);
+                size += foundCount[c];
+            }
+        }
+    }
+
+    /**
+     * Expands one chunk of the frontier into its buffer.
+     * @param chunk the chunk number (covering frontier[chunk*grain .. (chunk+1)*grain))
+     */
+    private void expand(int chunk) {
+        int[] out = found[chunk];
+        if (out == null) {
+            out = new int[4 * grain];
+            found[chunk] = out;
+        }
+        int width = map.getWidth();
+        int n = 0;
+        int end = Math.min(size, (chunk + 1) * grain);
+        for (int i = chunk * grain; i < end; i++) {
+            int cell = frontier[i];
+            int x = cell % width;
+            int y = cell / width;
+            for (int dir = Map.UP; dir <= Map.LEFT; dir++) {
+                int next = map.step(x, y, dir, cyclic);
+                if (next >= 0 && dist[next] == -1 && (free[next >>> 6] & (1L << next)) != 0) {
+                    dist[next] = nextDist;
+                    out[n++] = next;
+                }
+            }
+        }
+        foundCount[chunk] = n;
+    }
+
+    /**
+     * A fork-join task expanding a range of chunks (split in halves down to single chunks).
+     */
+    private class Expand extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        /** The first chunk of the range. */
+        private final int lo;
+        /** The end (exclusive) of the range. */
+        private final int hi;
+
+        Expand(int lo, int hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo == 1) {
+                expand(lo);
+            }
+            else {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Expand(lo, mid), new Expand(mid, hi));
+            }
+        }
+    }
+}
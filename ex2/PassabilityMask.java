@@ -0,0 +1,76 @@
+package ex2;
+
+/**
+ * A bitset of the passable cells of a Map for one obstacle color: bit y*width + x is set
+ * if and only if the pixel (x, y) differs from obsColor.
+ * The traversal algorithms test a bit instead of loading and comparing a pixel, and the bitset
+ * is 32 times smaller than the pixels, so large maps stay in the cache.
+ * The map keeps its masks up to date: small changes refresh the bits of the changed rectangle,
+ * while changes of the whole map (init, rescale, mul, addMap2D) drop the masks, which are then rebuilt on demand.
+ */
+class PassabilityMask {
+    /** The color value representing obstacles. */
+    private final int obsColor;
+    /** The passable cells, 64 per word. */
+    private final long[] bits;
+
+    /**
+     * Builds the mask of the given pixels.
+     * @param data the pixels of the map, row-major
+     * @param obsColor the color value representing obstacles
+     */
+    PassabilityMask(int[] data, int obsColor) {
+        this.obsColor = obsColor;
+        bits = new long[(data.length + 63) >>> 6];
+        for (int cell = 0; cell < data.length; cell++) {
+            if (data[cell] != obsColor) {
+                bits[cell >>> 6] |= 1L << cell;
+            }
+        }
+    }
+
+    /**
+     * @return the color value representing obstacles
+     */
+    int obsColor() {
+        return obsColor;
+    }
+
+    /**
+     * @return the words of the bitset (shared with the mask - must not be changed)
+     */
+    long[] words() {
+        return bits;
+    }
+
+    /**
+     * @param cell a packed cell index
+     * @return true if the cell is not an obstacle
+     */
+    boolean passable(int cell) {
+        return (bits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Recomputes the bits of a rectangle of the map from its pixels.
+     * @param data the pixels of the map, row-major
+     * @param width the width of the map
+     * @param minX the smallest x coordinate of the rectangle
+     * @param minY the smallest y coordinate of the rectangle
+     * @param maxX the largest x coordinate of the rectangle
+     * @param maxY the largest y coordinate of the rectangle
+     */
+    void refresh(int[] data, int width, int minX, int minY, int maxX, int maxY) {
+        for (int y = minY; y <= maxY; y++) {
+            int row = y * width;
+            for (int cell = row + minX; cell <= row + maxX; cell++) {
+                if (data[cell] != obsColor) {
+                    bits[cell >>> 6] |= 1L << cell;
+                }
+                else {
+                    bits[cell >>> 6] &= ~(1L << cell);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ex2;
+
+/**
+ * One shortest path query of a batch (see {@link Map#shortestPaths(PathQuery[])}):
+ * the arguments of a single {@link Map#shortestPath(Pixel2D, Pixel2D, int, boolean)} call.
+ */
+public class PathQuery {
+    /** The starting pixel. */
+    private final Pixel2D p1;
+    /** The destination pixel. */
+    private final Pixel2D p2;
+    /** The color value representing obstacles. */
+    private final int obsColor;
+    /** If true, the map edges wrap around. */
+    private final boolean cyclic;
+
+    /**
+     * Constructs a query.
+     * @param p1 the starting pixel
+     * @param p2 the destination pixel
+     * @param obsColor the color value representing obstacles that cannot be traversed
+     * @param cyclic if true, treats the map as cyclic (edges wrap around)
+     */
+    public PathQuery(Pixel2D p1, Pixel2D p2, int obsColor, boolean cyclic) {
+        this.p1 = p1;
+        this.p2 = p2;
+        this.obsColor = obsColor;
+        this.cyclic = cyclic;
+    }
+
+    /**
+     * @return the starting pixel
+     */
+    public Pixel2D getP1() {
+        return p1;
+    }
+
+    /**
+     * @return the destination pixel
+     */
+    public Pixel2D getP2() {
+        return p2;
+    }
+
+    /**
+     * @return the color value representing obstacles
+     */
+    public int getObsColor() {
+        return obsColor;
+    }
+
+    /**
+     * @return true if the map edges wrap around
+     */
+    public boolean isCyclic() {
+        return cyclic;
+    }
+
+    @Override
+    public String toString() {
+        return p1 + " -> " + p2 + " (obsColor " + obsColor + (cyclic ? ", cyclic)" : ")");
+    }
+}
@@ -0,0 +1,149 @@
+package ex2;
+
+/**
+ * A read-only view of a Map2D.
+ * All the accessors and the (non-mutating) algorithms are delegated to the wrapped map,
+ * while every method that would change the pixels throws an UnsupportedOperationException.
+ * Used to share maps that must not be changed by their users (e.g. cached distance maps).
+ */
+public class ReadOnlyMap implements Map2D {
+    /** The wrapped map. */
+    private final Map2D map;
+
+    /**
+     * Constructs a read-only view of the given map.
+     * @param map the map to wrap (it should not be changed through other references)
+     */
+    public ReadOnlyMap(Map2D map) {
+        this.map = map;
+    }
+
+    @Override
+    public void init(int w, int h, int v) {
+        throw readOnly();
+    }
+
+    @Override
+    public void init(int[][] arr) {
+        throw readOnly();
+    }
+
+    @Override
+    public int[][] getMap() {
+        return map.getMap();
+    }
+
+    @Override
+    public int getWidth() {
+        return map.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return map.getHeight();
+    }
+
+    @Override
+    public int getPixel(int x, int y) {
+        return map.getPixel(x, y);
+    }
+
+    @Override
+    public int getPixel(Pixel2D p) {
+        return map.getPixel(p);
+    }
+
+    @Override
+    public void setPixel(int x, int y, int v) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setPixel(Pixel2D p, int v) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean isInside(Pixel2D p) {
+        return map.isInside(p);
+    }
+
+    @Override
+    public boolean sameDimensions(Map2D p) {
+        return map.sameDimensions(p);
+    }
+
+    @Override
+    public void addMap2D(Map2D p) {
+        throw readOnly();
+    }
+
+    @Override
+    public void mul(double scalar) {
+        throw readOnly();
+    }
+
+    @Override
+    public void rescale(double sx, double sy) {
+        throw readOnly();
+    }
+
+    @Override
+    public void drawCircle(Pixel2D center, double rad, int newColor) {
+        throw readOnly();
+    }
+
+    @Override
+    public void drawLine(Pixel2D p1, Pixel2D p2, int newColor) {
+        throw readOnly();
+    }
+
+    @Override
+    public void drawRect(Pixel2D p1, Pixel2D p2, int newColor) {
+        throw readOnly();
+    }
+
+    /**
+     * Two read-only views are equal if their wrapped maps are equal;
+     * a view is equal to a map that is equal to its wrapped map (Map.equals agrees, so equality is symmetric).
+     * @param m the reference object with which to compare.
+     * @return true if and only if the wrapped map equals m (or the map wrapped by m)
+     */
+    @Override
+    public boolean equals(Object m) {
+        if (m instanceof ReadOnlyMap) {
+            return map.equals(((ReadOnlyMap) m).map);
+        }
+        return map.equals(m);
+    }
+
+    /**
+     * @return the hash code of the wrapped map (so that a view and an equal map have the same hash code)
+     */
+    @Override
+    public int hashCode() {
+        return map.hashCode();
+    }
+
+    @Override
+    public int fill(Pixel2D p, int new_v, boolean cyclic) {
+        throw readOnly();
+    }
+
+    @Override
+    public Pixel2D[] shortestPath(Pixel2D p1, Pixel2D p2, int obsColor, boolean cyclic) {
+        return map.shortestPath(p1, p2, obsColor, cyclic);
+    }
+
+    @Override
+    public Map2D allDistance(Pixel2D start, int obsColor, boolean cyclic) {
+        return map.allDistance(start, obsColor, cyclic);
+    }
+
+    /**
+     * @return the exception thrown by every mutating method
+     */
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("this map is read-only");
+    }
+}